@@ -0,0 +1,22 @@
+package de.sfuhrm.imagemagick.spi;
+
+/** ImageMagick specific alpha channel operations. */
+enum AlphaChannelOption {
+    UndefinedAlphaChannel,
+    ActivateAlphaChannel,
+    AssociateAlphaChannel,   /* multiply the color channels with alpha */
+    BackgroundAlphaChannel,
+    CopyAlphaChannel,
+    DeactivateAlphaChannel,
+    DiscreteAlphaChannel,
+    DisassociateAlphaChannel, /* divide the color channels by alpha */
+    ExtractAlphaChannel,
+    OffAlphaChannel,
+    OnAlphaChannel,
+    OpaqueAlphaChannel,
+    RemoveAlphaChannel,
+    SetAlphaChannel,
+    ShapeAlphaChannel,
+    TransparentAlphaChannel,
+    OffIfOpaqueAlphaChannel
+}
@@ -0,0 +1,55 @@
+package de.sfuhrm.imagemagick.spi;
+
+/** ImageMagick specific compression type values. */
+enum CompressionType {
+    UndefinedCompression,
+    B44ACompression,
+    B44Compression,
+    BZipCompression,
+    DXT1Compression,
+    DXT3Compression,
+    DXT5Compression,
+    FaxCompression,
+    Group4Compression,
+    JBIG1Compression,        /* ISO/IEC std 11544 / ITU-T rec T.82 */
+    JBIG2Compression,        /* ISO/IEC std 14492 / ITU-T rec T.88 */
+    JPEG2000Compression,     /* ISO/IEC std 15444-1 */
+    JPEGCompression,
+    LosslessJPEGCompression,
+    LZMACompression,         /* Lempel-Ziv-Markov chain algorithm */
+    LZWCompression,
+    NoCompression,
+    PizCompression,
+    Pxr24Compression,
+    RLECompression,
+    ZipCompression,
+    ZipSCompression,
+    ZstdCompression,
+    WebPCompression,
+    DWAACompression,
+    DWABCompression,
+    BC7Compression,
+    BC5Compression,
+    LERCCompression;
+
+    /** The suffix of the constant names. */
+    private static final String SUFFIX = "Compression";
+
+    /** Get the name as ImageMagick's {@code -compress} option knows it, like {@code Zip} or {@code None}.
+     * */
+    String getName() {
+        return this == NoCompression ? "None" : name().substring(0, name().length() - SUFFIX.length());
+    }
+
+    /** Get the compression type for a name.
+     * @see #getName()
+     * */
+    static CompressionType forName(String name) {
+        for (CompressionType compressionType : values()) {
+            if (compressionType.getName().equals(name)) {
+                return compressionType;
+            }
+        }
+        throw new IllegalArgumentException("Unknown compression type " + name);
+    }
+}
@@ -0,0 +1,44 @@
+package de.sfuhrm.imagemagick.spi;
+
+/**
+ * The attributes of a frame, read once from ImageMagick.
+ * @param width the width in pixels.
+ * @param height the height in pixels.
+ * @param depth the depth in bits per gun.
+ * @param colorspace the color space of the pixels.
+ * @param hasAlpha whether the frame has an alpha channel.
+ * @param resolutionX the horizontal resolution in {@code units}.
+ * @param resolutionY the vertical resolution in {@code units}.
+ * @param units the units of the resolution.
+ * @param orientation the orientation, for example from EXIF.
+ */
+record FrameHeader(int width,
+                   int height,
+                   int depth,
+                   ColorspaceType colorspace,
+                   boolean hasAlpha,
+                   double resolutionX,
+                   double resolutionY,
+                   ResolutionType units,
+                   OrientationType orientation) {
+
+    /** Reads the attributes of the current image of the wand. */
+    static FrameHeader of(NativeMagick.MagickWand wand) throws MagickException {
+        double[] resolution = wand.getImageResolution();
+        return new FrameHeader(
+                (int) wand.getImageWidth(),
+                (int) wand.getImageHeight(),
+                wand.getImageDepth(),
+                wand.getImageColorspace(),
+                wand.getImageAlphaChannel(),
+                resolution[0],
+                resolution[1],
+                wand.getImageUnits(),
+                wand.getImageOrientation());
+    }
+
+    /** Whether the pixels have a single gray channel. */
+    boolean isGray() {
+        return colorspace.getChannelCount() == 1;
+    }
+}
@@ -0,0 +1,186 @@
+package de.sfuhrm.imagemagick.spi;
+
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Objects;
+
+/**
+ * Adapts an {@link ImageInputStream} to the reader, seeker and teller
+ * callbacks of an ImageMagick {@code CustomStreamInfo}.
+ * Offsets seen by ImageMagick are relative to the stream position
+ * at construction time.
+ * The callbacks are invoked from native code and must never throw,
+ * so I/O problems are recorded and can be queried with {@link #getFailure()}.
+ * @see <a href="https://imagemagick.org/api/blob.php">MagickCore, C API: Blob Methods</a>
+ */
+final class ImageInputStreamAdapter {
+
+    /** {@code whence} value for seeking relative to the start. */
+    private static final int SEEK_SET = 0;
+
+    /** {@code whence} value for seeking relative to the current position. */
+    private static final int SEEK_CUR = 1;
+
+    /** {@code whence} value for seeking relative to the end. */
+    private static final int SEEK_END = 2;
+
+    /** The size of the heap buffer used for moving data to native memory. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /** Handle for {@link #read(MemorySegment, long, MemorySegment)}. */
+    static final MethodHandle READ;
+
+    /** Handle for {@link #seek(long, int, MemorySegment)}. */
+    static final MethodHandle SEEK;
+
+    /** Handle for {@link #tell(MemorySegment)}. */
+    static final MethodHandle TELL;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            READ = lookup.findVirtual(ImageInputStreamAdapter.class, "read",
+                    MethodType.methodType(long.class, MemorySegment.class, long.class, MemorySegment.class));
+            SEEK = lookup.findVirtual(ImageInputStreamAdapter.class, "seek",
+                    MethodType.methodType(long.class, long.class, int.class, MemorySegment.class));
+            TELL = lookup.findVirtual(ImageInputStreamAdapter.class, "tell",
+                    MethodType.methodType(long.class, MemorySegment.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** The stream to read from. */
+    private final ImageInputStream stream;
+
+    /** The stream position that ImageMagick sees as offset 0. */
+    private final long base;
+
+    /** The stream position of the end of the stream, or -1 if not known yet. */
+    private long endPosition = -1;
+
+    /** The transfer buffer, allocated on first use. */
+    private byte[] buffer;
+
+    /** The first I/O problem that occurred in a callback, if any. */
+    private IOException failure;
+
+    /**
+     * Creates an adapter reading from the current stream position.
+     * @param stream the stream to read from.
+     * @throws IOException if the stream position can not be determined.
+     */
+    ImageInputStreamAdapter(ImageInputStream stream) throws IOException {
+        this.stream = Objects.requireNonNull(stream, "stream must be non-null");
+        this.base = stream.getStreamPosition();
+    }
+
+    /** Gets the first I/O problem that occurred in a callback, or {@code null}. */
+    IOException getFailure() {
+        return failure;
+    }
+
+    /** Reader callback: fills up to {@code length} bytes at {@code data}.
+     * @return the number of bytes read, 0 at the end of the stream, or -1 on error.
+     * */
+    long read(MemorySegment data, long length, MemorySegment userData) {
+        try {
+            if (buffer == null) {
+                buffer = new byte[BUFFER_SIZE];
+            }
+            MemorySegment target = data.reinterpret(length);
+            long total = 0;
+            while (total < length) {
+                int chunk = (int) Math.min(buffer.length, length - total);
+                int len = stream.read(buffer, 0, chunk);
+                if (len < 0) {
+                    break;
+                }
+                MemorySegment.copy(MemorySegment.ofArray(buffer), 0, target, total, len);
+                total += len;
+            }
+            return total;
+        } catch (IOException e) {
+            recordFailure(e);
+            return -1;
+        } catch (RuntimeException e) {
+            recordFailure(new IOException(e));
+            return -1;
+        }
+    }
+
+    /** Seeker callback with {@code lseek(2)} semantics.
+     * @return the new offset, or -1 on error.
+     * */
+    long seek(long offset, int whence, MemorySegment userData) {
+        try {
+            long position;
+            switch (whence) {
+                case SEEK_SET:
+                    position = base + offset;
+                    break;
+                case SEEK_CUR:
+                    position = stream.getStreamPosition() + offset;
+                    break;
+                case SEEK_END:
+                    position = getEndPosition() + offset;
+                    break;
+                default:
+                    return -1;
+            }
+            if (position < base) {
+                return -1;
+            }
+            stream.seek(position);
+            return position - base;
+        } catch (IOException e) {
+            recordFailure(e);
+            return -1;
+        } catch (RuntimeException e) {
+            // e.g. seeking before the flushed position
+            return -1;
+        }
+    }
+
+    /** Gets the stream position of the end of the stream.
+     * Streams of unknown length are read to their end once, the
+     * {@link ImageInputStream} caches what was read.
+     * */
+    private long getEndPosition() throws IOException {
+        if (endPosition < 0) {
+            endPosition = stream.length();
+        }
+        if (endPosition < 0) {
+            if (buffer == null) {
+                buffer = new byte[BUFFER_SIZE];
+            }
+            while (stream.read(buffer) >= 0) {
+                // skip to the end
+            }
+            endPosition = stream.getStreamPosition();
+        }
+        return endPosition;
+    }
+
+    /** Teller callback.
+     * @return the current offset, or -1 on error.
+     * */
+    long tell(MemorySegment userData) {
+        try {
+            return stream.getStreamPosition() - base;
+        } catch (IOException e) {
+            recordFailure(e);
+            return -1;
+        }
+    }
+
+    private void recordFailure(IOException e) {
+        if (failure == null) {
+            failure = e;
+        }
+    }
+}
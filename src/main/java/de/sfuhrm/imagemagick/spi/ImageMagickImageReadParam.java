@@ -0,0 +1,20 @@
+package de.sfuhrm.imagemagick.spi;
+
+import javax.imageio.ImageReadParam;
+
+/**
+ * Read parameters for the {@link ImageMagickImageReader}.
+ * In addition to the standard parameters, the source render size
+ * can be set. The image is then decoded directly at that size.
+ * Coders that support reduced-size decoding, like JPEG with its
+ * DCT scaling, get the size as a hint and decode much faster
+ * than at full size.
+ * @see #setSourceRenderSize(java.awt.Dimension)
+ */
+public class ImageMagickImageReadParam extends ImageReadParam {
+
+    /** Constructs read parameters with default settings. */
+    public ImageMagickImageReadParam() {
+        canSetSourceRenderSize = true;
+    }
+}
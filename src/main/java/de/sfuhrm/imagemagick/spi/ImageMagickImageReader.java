@@ -1,5 +1,6 @@
 package de.sfuhrm.imagemagick.spi;
 
+import javax.imageio.IIOException;
 import javax.imageio.ImageReader;
 import javax.imageio.ImageReadParam;
 import javax.imageio.ImageTypeSpecifier;
@@ -11,16 +12,32 @@ import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
 import java.awt.image.ColorModel;
 import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DirectColorModel;
 import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.DataBufferInt;
 import java.awt.image.DataBufferUShort;
 import java.awt.image.PixelInterleavedSampleModel;
 import java.awt.image.Raster;
 import java.awt.image.SampleModel;
 import java.awt.image.WritableRaster;
+import java.io.File;
 import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Bridges ImageIO to ImageMagick via Foreign Function API.
@@ -33,14 +50,72 @@ public class ImageMagickImageReader extends ImageReader {
     /** The native magick instance to use. */
     private final NativeMagick magick;
 
-    /** The per-image context. */
+    /** The number of rows exported at once into destinations. */
+    private static final int BAND_ROWS = 64;
+
+    /** File name selecting a single frame, see {@link NativeMagick.MagickWand#setFilename(String)}. */
+    private static final String SUBIMAGE_FILENAME = "image[%d]";
+
+    /** Coder option with the size hint for reduced-size JPEG decoding. */
+    private static final String JPEG_SIZE_OPTION = "jpeg:size";
+
+    /** Image property with the native tile geometry like {@code 256x256}. */
+    private static final String TILE_GEOMETRY_PROPERTY = "tiff:tile-geometry";
+
+    /** Image property with the number of rows per strip. */
+    private static final String ROWS_PER_STRIP_PROPERTY = "tiff:rows-per-strip";
+
+    /** Formats of the TIFF coder, the one reporting tiles and strips. */
+    private static final Set<String> TIFF_FORMATS = Set.of("TIFF", "TIF", "TIFF64", "PTIF");
+
+    /** Band offsets for exports with the {@code I} map. */
+    private static final int[] GRAY_BAND_OFFSETS = {0};
+
+    /** Band offsets for exports with the {@code BGR} map. */
+    private static final int[] BGR_BAND_OFFSETS = {2, 1, 0};
+
+    /** Band offsets for exports with the {@code ABGR} map. */
+    private static final int[] ABGR_BAND_OFFSETS = {3, 2, 1, 0};
+
+    /** Band offsets for exports with the {@code RGB} map. */
+    private static final int[] RGB_BAND_OFFSETS = {0, 1, 2};
+
+    /** Band offsets for exports with the {@code RGBA} map. */
+    private static final int[] RGBA_BAND_OFFSETS = {0, 1, 2, 3};
+
+    /** The context holding all decoded images, if the input had to be decoded as a whole. */
     private NativeMagick.MagickWand wand;
 
+    /** The contexts holding single decoded frames by image index and render size. */
+    private final Map<FrameKey, NativeMagick.MagickWand> frames = new HashMap<>();
+
+    /** Identifies a decoded frame.
+     * @param imageIndex the index of the frame.
+     * @param renderSize the size the frame was rendered at, or {@code null} for the original size.
+     * */
+    private record FrameKey(int imageIndex, Dimension renderSize) {
+    }
+
+    /** The attributes of the frames by image index, read on first access. */
+    private final Map<Integer, FrameHeader> headers = new HashMap<>();
+
+    /** The context holding only the pinged image attributes, if pinged. */
+    private NativeMagick.MagickWand pingWand;
+
     /** An ImageInputStream, if already set using {@link #setInput(Object, boolean, boolean)}. */
     private ImageInputStream stream;
 
-    /** The raw input data of the image read. */
-    private byte[] inputData;
+    /** A file, if already set as {@link File} or {@link Path} using {@link #setInput(Object, boolean, boolean)}. */
+    private Path file;
+
+    /** The arena owning or mapping {@link #inputData}. */
+    private Arena inputArena;
+
+    /** The raw input data of the image read, if not read as a stream. */
+    private MemorySegment inputData;
+
+    /** The position of the image in {@link #stream} if read as a stream, or -1. */
+    private long streamStart = -1;
 
     /** Whether we already have data read. */
     private boolean hasData;
@@ -57,8 +132,10 @@ public class ImageMagickImageReader extends ImageReader {
     @Override
     public int getNumImages(boolean allowSearch) throws IOException {
         try {
-            ensureLoaded();
-            return (int) wand.getNumberImages();
+            if (!allowSearch && !hasData && pingWand == null) {
+                return -1;
+            }
+            return (int) ensureHeader().getNumberImages();
         } catch (MagickException e) {
             throw new IOException(e);
         }
@@ -66,92 +143,444 @@ public class ImageMagickImageReader extends ImageReader {
 
     @Override
     public int getWidth(int imageIndex) throws IOException {
-        if (imageIndex < 0) throw new IndexOutOfBoundsException();
-        ensureLoaded();
+        return getHeader(imageIndex).width();
+    }
+
+    @Override
+    public int getHeight(int imageIndex) throws IOException {
+        return getHeader(imageIndex).height();
+    }
+
+
+    @Override
+    public boolean isImageTiled(int imageIndex) throws IOException {
+        return getNativeTileSize(imageIndex).isPresent();
+    }
+
+    @Override
+    public int getTileWidth(int imageIndex) throws IOException {
+        return getTileSize(imageIndex).width;
+    }
+
+    @Override
+    public int getTileHeight(int imageIndex) throws IOException {
+        return getTileSize(imageIndex).height;
+    }
+
+    @Override
+    public BufferedImage readTile(int imageIndex, int tileX, int tileY) throws IOException {
+        int width = getWidth(imageIndex);
+        int height = getHeight(imageIndex);
+        Dimension tileSize = getTileSize(imageIndex);
+        int x = tileX * tileSize.width;
+        int y = tileY * tileSize.height;
+        if (tileX < 0 || tileY < 0 || x >= width || y >= height) {
+            throw new IllegalArgumentException("Tile indices out of bounds: " + tileX + ", " + tileY);
+        }
+
+        ImageReadParam param = getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(x, y,
+                Math.min(tileSize.width, width - x),
+                Math.min(tileSize.height, height - y)));
+        return read(imageIndex, param);
+    }
+
+    @Override
+    public boolean canReadRaster() {
+        return true;
+    }
+
+    @Override
+    public Raster readRaster(int imageIndex, ImageReadParam param) throws IOException {
+        return read(imageIndex, param).getRaster();
+    }
+
+    @Override
+    public Raster readTileRaster(int imageIndex, int tileX, int tileY) throws IOException {
+        return readTile(imageIndex, tileX, tileY).getRaster();
+    }
+
+    /** Gets the tile size, the native tiling or strips of the source if reported, or the image size. */
+    private Dimension getTileSize(int imageIndex) throws IOException {
+        Optional<Dimension> nativeTileSize = getNativeTileSize(imageIndex);
+        if (nativeTileSize.isPresent()) {
+            return nativeTileSize.get();
+        }
+
         try {
-            wand.setIteratorIndex(imageIndex);
-            return (int) wand.getImageWidth();
+            int width = getWidth(imageIndex);
+            int height = getHeight(imageIndex);
+            Optional<String> rowsPerStrip = getTiffProperty(imageIndex, ROWS_PER_STRIP_PROPERTY);
+            if (rowsPerStrip.isPresent()) {
+                try {
+                    int rows = Integer.parseInt(rowsPerStrip.get().trim());
+                    if (rows > 0 && rows < height) {
+                        return new Dimension(width, rows);
+                    }
+                } catch (NumberFormatException e) {
+                    // fall through to the untiled size
+                }
+            }
+            return new Dimension(width, height);
         } catch (MagickException e) {
             throw new IOException(e);
         }
     }
 
-    @Override
-    public int getHeight(int imageIndex) throws IOException {
-        if (imageIndex < 0) throw new IndexOutOfBoundsException();
-        ensureLoaded();
+    /** Gets the native tile size if ImageMagick reports one. */
+    private Optional<Dimension> getNativeTileSize(int imageIndex) throws IOException {
         try {
-            wand.setIteratorIndex(imageIndex);
-            return (int) wand.getImageHeight();
+            Optional<String> geometry = getTiffProperty(imageIndex, TILE_GEOMETRY_PROPERTY);
+            if (geometry.isEmpty()) {
+                return Optional.empty();
+            }
+            String[] parts = geometry.get().trim().split("x");
+            if (parts.length != 2) {
+                return Optional.empty();
+            }
+            int tileWidth = Integer.parseInt(parts[0]);
+            int tileHeight = Integer.parseInt(parts[1]);
+            if (tileWidth <= 0 || tileHeight <= 0) {
+                return Optional.empty();
+            }
+            return Optional.of(new Dimension(tileWidth, tileHeight));
+        } catch (NumberFormatException e) {
+            return Optional.empty();
         } catch (MagickException e) {
             throw new IOException(e);
         }
     }
 
+    /** Gets a property of the TIFF coder.
+     * Pinging might not report the layout of the file, then the property
+     * is taken from the decoded frame of TIFF images.
+     * */
+    private Optional<String> getTiffProperty(int imageIndex, String name) throws IOException, MagickException {
+        NativeMagick.MagickWand header = ensureHeader(imageIndex);
+        Optional<String> value = header.getImageProperty(name);
+        if (value.isPresent() || header != pingWand || !TIFF_FORMATS.contains(header.getImageFormat())) {
+            return value;
+        }
+        return ensureFrame(imageIndex, null).getImageProperty(name);
+    }
 
     @Override
     public void setInput(Object input, boolean seekForwardOnly, boolean ignoreMetadata) {
         super.setInput(input, seekForwardOnly, ignoreMetadata);
 
         hasData = false;
-        if (wand != null) {
-            wand.close();
-            wand = null;
+        closeWands();
+        headers.clear();
+
+        if (input instanceof File inputFile) {
+            this.file = inputFile.toPath();
+            this.stream = null;
+        } else if (input instanceof Path inputPath) {
+            this.file = inputPath;
+            this.stream = null;
+        } else {
+            this.file = null;
+            this.stream = (ImageInputStream) input;
         }
+        releaseInputData();
+    }
 
+    @Override
+    public BufferedImage read(int imageIndex, ImageReadParam param) throws IOException {
         try {
-            this.wand = magick.new MagickWand();
+            Dimension renderSize = param != null ? param.getSourceRenderSize() : null;
+            NativeMagick.MagickWand frame = ensureFrame(imageIndex, renderSize);
+            if (renderSize != null
+                    && (frame.getImageWidth() != renderSize.width || frame.getImageHeight() != renderSize.height)) {
+                // decoded as a whole without size hint
+                try (NativeMagick.MagickWand rendered = frame.getImageRegion(
+                        0, 0, frame.getImageWidth(), frame.getImageHeight())) {
+                    rendered.scaleImage(renderSize.width, renderSize.height);
+                    return read(rendered, param);
+                }
+            }
+            return read(frame, param);
         } catch (MagickException e) {
+            throw new IOException(e);
         }
-
-        this.stream = (ImageInputStream) input;
-        this.inputData = null;
     }
 
     @Override
-    public BufferedImage read(int imageIndex, ImageReadParam param) throws IOException {
-        ensureLoaded();
+    public ImageReadParam getDefaultReadParam() {
+        return new ImageMagickImageReadParam();
+    }
+
+    /** Reads the current image of the wand, applying region and subsampling of the param. */
+    private BufferedImage read(NativeMagick.MagickWand frame, ImageReadParam param) throws IOException {
+        BufferedImage destination = param != null ? param.getDestination() : null;
+        if (destination != null) {
+            return readIntoDestination(frame, param, destination);
+        }
         try {
-            wand.setIteratorIndex(imageIndex);
-            int width = (int) wand.getImageWidth();
-            int height = (int) wand.getImageHeight();
-            int imageDepth = wand.getImageDepth();
-            ColorspaceType colorspaceType = wand.getImageColorspace();
-            boolean hasAlpha = wand.getImageAlphaChannel();
+            Rectangle region = getSourceRegion(param,
+                    (int) frame.getImageWidth(),
+                    (int) frame.getImageHeight());
+            int periodX = param != null ? param.getSourceXSubsampling() : 1;
+            int periodY = param != null ? param.getSourceYSubsampling() : 1;
+            ImageTypeSpecifier destinationType = param != null ? param.getDestinationType() : null;
+            if (periodX == 1 && periodY == 1) {
+                return read(frame, region.x, region.y, region.width, region.height, destinationType);
+            }
+
+            // sample natively, only the sampled pixels get exported
+            try (NativeMagick.MagickWand sampled = sampleRegion(frame, region, periodX, periodY)) {
+                return read(sampled, 0, 0,
+                        (int) sampled.getImageWidth(),
+                        (int) sampled.getImageHeight(),
+                        destinationType);
+            }
+        } catch (MagickException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /** Subsamples a region of the current image of the wand like ImageIO does.
+     * The pixels at {@code region.x + i * periodX} and {@code region.y + j * periodY}
+     * are picked.
+     * @return a new wand with the sampled image, to be closed by the caller.
+     * */
+    private static NativeMagick.MagickWand sampleRegion(NativeMagick.MagickWand frame, Rectangle region,
+                                                        int periodX, int periodY) throws MagickException {
+        int width = (region.width + periodX - 1) / periodX;
+        int height = (region.height + periodY - 1) / periodY;
+        NativeMagick.MagickWand sampled = frame.getImageRegion(
+                region.x, region.y, region.width, region.height);
+        try {
+            // sampling picks the top left pixel of each cell, so the cells
+            // need to be exactly period sized; the padding is never picked
+            if (region.width != width * periodX || region.height != height * periodY) {
+                sampled.extentImage((long) width * periodX, (long) height * periodY);
+            }
+            sampled.sampleImage(width, height);
+            return sampled;
+        } catch (MagickException | RuntimeException e) {
+            sampled.close();
+            throw e;
+        }
+    }
+
+    /** Reads the current image of the wand into the destination image of the param.
+     * Destinations with a raster layout ImageMagick can export to are filled directly,
+     * others get a copy of the decoded image drawn into.
+     * @return the destination.
+     * */
+    private BufferedImage readIntoDestination(NativeMagick.MagickWand frame, ImageReadParam param,
+                                              BufferedImage destination) throws IOException {
+        try {
+            Rectangle sourceRegion = new Rectangle();
+            Rectangle destinationRegion = new Rectangle();
+            computeRegions(param,
+                    (int) frame.getImageWidth(),
+                    (int) frame.getImageHeight(),
+                    destination,
+                    sourceRegion,
+                    destinationRegion);
+
+            NativeMagick.MagickWand source = frame;
+            NativeMagick.MagickWand sampled = null;
+            int x = sourceRegion.x;
+            int y = sourceRegion.y;
+            try {
+                if (param.getSourceXSubsampling() != 1 || param.getSourceYSubsampling() != 1) {
+                    // sample natively, only the sampled pixels get exported
+                    sampled = sampleRegion(frame, sourceRegion,
+                            param.getSourceXSubsampling(), param.getSourceYSubsampling());
+                    source = sampled;
+                    x = 0;
+                    y = 0;
+                }
+
+                if (!exportInto(source, x, y, destinationRegion.width, destinationRegion.height,
+                        destination, destinationRegion.x, destinationRegion.y)) {
+                    BufferedImage image = read(source, x, y, destinationRegion.width, destinationRegion.height);
+                    Graphics2D graphics = destination.createGraphics();
+                    try {
+                        graphics.setComposite(AlphaComposite.Src);
+                        graphics.drawImage(image, destinationRegion.x, destinationRegion.y, null);
+                    } finally {
+                        graphics.dispose();
+                    }
+                }
+            } finally {
+                if (sampled != null) {
+                    sampled.close();
+                }
+            }
+            return destination;
+        } catch (MagickException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /** Exports a region of the current image of the wand into the raster of the destination.
+     * The pixels are exported in bands of rows into a raster of the same layout and
+     * copied from there. Exporting into the raster of the destination itself would take its
+     * arrays, and Java2D would stop accelerating the image of the caller.
+     * @param destinationX the x coordinate in the destination to export to.
+     * @param destinationY the y coordinate in the destination to export to.
+     * @return {@code false} if the destination layout is not supported and nothing was exported.
+     * @see RasterLayout
+     * */
+    private static boolean exportInto(NativeMagick.MagickWand frame, int x, int y, int width, int height,
+                                      BufferedImage destination, int destinationX, int destinationY) throws MagickException {
+        WritableRaster raster = destination.getRaster();
+        WritableRaster band = raster.createCompatibleWritableRaster(width, Math.max(1, Math.min(BAND_ROWS, height)));
+        Optional<RasterLayout> layout = RasterLayout.of(band, destination.getColorModel());
+        if (layout.isEmpty()) {
+            return false;
+        }
+        NativeMagick.MagickWand source = frame;
+        NativeMagick.MagickWand premultiplied = null;
+        int sourceX = x;
+        int sourceY = y;
+        try {
+            if (layout.get().isAlphaPremultiplied() && frame.getImageAlphaChannel()) {
+                // premultiply natively on a copy, the frame may be read again
+                premultiplied = frame.getImageRegion(x, y, width, height);
+                premultiplied.setImageAlphaChannel(AlphaChannelOption.AssociateAlphaChannel);
+                source = premultiplied;
+                sourceX = 0;
+                sourceY = 0;
+            }
+            for (int row = 0; row < height; row += band.getHeight()) {
+                int rows = Math.min(band.getHeight(), height - row);
+                layout.get().exportPixels(source, sourceX, sourceY + row, 0, 0, width, rows);
+                raster.setDataElements(raster.getMinX() + destinationX, raster.getMinY() + destinationY + row,
+                        rows == band.getHeight() ? band : band.createChild(0, 0, width, rows, 0, 0, null));
+            }
+        } finally {
+            if (premultiplied != null) {
+                premultiplied.close();
+            }
+        }
+        return true;
+    }
+
+    /** Exports a region of the current image of the wand into a new image of the destination type.
+     * The packed int types are exported natively, other destination types must match
+     * the type the image is read as.
+     * @param destinationType the requested type, or {@code null} for the natural type of the image.
+     * */
+    private BufferedImage read(NativeMagick.MagickWand frame, int x, int y, int width, int height,
+                               ImageTypeSpecifier destinationType) throws IOException {
+        if (destinationType == null) {
+            return read(frame, x, y, width, height);
+        }
+        try {
+            switch (destinationType.getBufferedImageType()) {
+                case BufferedImage.TYPE_INT_RGB:
+                    return toPackedBufferedImage(
+                            frame.exportImagePixelsAsRGBInts(x, y, width, height),
+                            width, height, BufferedImage.TYPE_INT_RGB);
+                case BufferedImage.TYPE_INT_ARGB:
+                    return toPackedBufferedImage(
+                            frame.exportImagePixelsAsARGBInts(x, y, width, height),
+                            width, height, BufferedImage.TYPE_INT_ARGB);
+                case BufferedImage.TYPE_INT_ARGB_PRE:
+                    if (!frame.getImageAlphaChannel()) {
+                        // opaque pixels are the same premultiplied
+                        return toPackedBufferedImage(
+                                frame.exportImagePixelsAsARGBInts(x, y, width, height),
+                                width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+                    }
+                    // premultiply natively on a copy, the frame may be read again
+                    try (NativeMagick.MagickWand premultiplied = frame.getImageRegion(x, y, width, height)) {
+                        premultiplied.setImageAlphaChannel(AlphaChannelOption.AssociateAlphaChannel);
+                        return toPackedBufferedImage(
+                                premultiplied.exportImagePixelsAsARGBInts(0, 0, width, height),
+                                width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+                    }
+                default:
+                    BufferedImage image = read(frame, x, y, width, height);
+                    if (!isCompatible(destinationType, image)) {
+                        throw new IIOException("Destination type is not supported: "
+                                + destinationType.getColorModel());
+                    }
+                    return image;
+            }
+        } catch (MagickException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /** Whether the type describes the pixel layout of the image.
+     * Unlike {@link ImageTypeSpecifier#equals(Object)} this ignores the size
+     * of the sample model and the class of the specifier.
+     * */
+    private static boolean isCompatible(ImageTypeSpecifier type, BufferedImage image) {
+        SampleModel typeSampleModel = type.getSampleModel();
+        SampleModel imageSampleModel = image.getSampleModel();
+        return type.getColorModel().equals(image.getColorModel())
+                && typeSampleModel.getTransferType() == imageSampleModel.getTransferType()
+                && typeSampleModel.getNumBands() == imageSampleModel.getNumBands()
+                && typeSampleModel instanceof ComponentSampleModel typeComponents
+                && imageSampleModel instanceof ComponentSampleModel imageComponents
+                && typeComponents.getPixelStride() == imageComponents.getPixelStride()
+                && Arrays.equals(typeComponents.getBandOffsets(), imageComponents.getBandOffsets());
+    }
+
+    /** Exports a region of the current image of the wand into a new image.
+     * The image wraps the exported array, no pixels are copied on the Java side.
+     * */
+    private BufferedImage read(NativeMagick.MagickWand frame, int x, int y, int width, int height) throws IOException {
+        try {
+            int imageDepth = frame.getImageDepth();
+            ColorspaceType colorspaceType = frame.getImageColorspace();
+            boolean hasAlpha = frame.getImageAlphaChannel();
+            boolean gray = colorspaceType.getChannelCount() == 1;
+            int pixels = width * height;
 
             // depending on the image depth (bits per gun) and
             // pixel components the decoding is different
-            DataBuffer dataBuffer;
             switch (imageDepth) {
                 case 8:
-                    switch (colorspaceType.getChannelCount()) {
-                        case 1: // Gray
-                            dataBuffer = new DataBufferByte(wand.exportImagePixelsAsGrayBytes(), width * height, 0);
-                            //return toBufferedImageGray(dataBuffer, BufferedImage.TYPE_BYTE_GRAY, width, height);
-                            return toBufferedImage(dataBuffer, BufferedImage.TYPE_BYTE_GRAY, width, height, 1, new int[] {0});
-                        case 3: // RGB
-                            dataBuffer = new DataBufferByte(wand.exportImagePixelsAsRGBBytes(), 3 * width * height, 0);
-                            return toBufferedImage(dataBuffer, BufferedImage.TYPE_3BYTE_BGR, width, height, 3, new int[] {0, 1, 2});
-                        case 4: // ARGB
-                            dataBuffer = new DataBufferByte(wand.exportImagePixelsAsARGBBytes(), 4 * width * height, 0);
-                            // TODO 1 2 3 1 doesnt make sense, but the test is green?
-                            return toBufferedImage(dataBuffer, BufferedImage.TYPE_4BYTE_ABGR, width, height, 4, new int[] {1, 2, 3, 1});
-                        default:
-                            throw newCantDecodeException(imageDepth, colorspaceType);
+                    if (gray) { // TYPE_BYTE_GRAY
+                        return toBufferedImage(
+                                new DataBufferByte(frame.exportImagePixelsAsGrayBytes(x, y, width, height), pixels),
+                                width, height, GRAY_BAND_OFFSETS, true, false);
+                    } else if (hasAlpha) { // TYPE_4BYTE_ABGR
+                        return toBufferedImage(
+                                new DataBufferByte(frame.exportImagePixelsAsABGRBytes(x, y, width, height), 4 * pixels),
+                                width, height, ABGR_BAND_OFFSETS, false, true);
+                    } else { // TYPE_3BYTE_BGR
+                        return toBufferedImage(
+                                new DataBufferByte(frame.exportImagePixelsAsBGRBytes(x, y, width, height), 3 * pixels),
+                                width, height, BGR_BAND_OFFSETS, false, false);
                     }
                 case 16:
-                    switch (colorspaceType.getChannelCount()) {
-                        case 1: // Gray
-                            dataBuffer = new DataBufferUShort(wand.exportImagePixelsAsGrayShorts(), width * height, 0);
-                            return toBufferedImage(dataBuffer, BufferedImage.TYPE_USHORT_GRAY, width, height, 1, new int[] {0});
-                        case 3: // RGB
-                            dataBuffer = new DataBufferUShort(wand.exportImagePixelsAsRGBShorts(), 3 * width * height, 0);
-                            return createRGBImageFromShorts((DataBufferUShort)  dataBuffer, width, height, new int[] {0, 1, 2}, new int[] {16, 16, 16}, 3);
-                        case 4: // ARGB
-                            dataBuffer = new DataBufferUShort(wand.exportImagePixelsAsARGBShorts(), 4 * width * height, 0);
-                            return createRGBImageFromShorts((DataBufferUShort)  dataBuffer, width, height, new int[] {1, 2, 3, 1}, new int[] {16, 16, 16, 16}, 4);
-                        default:
-                            throw newCantDecodeException(imageDepth, colorspaceType);
+                    if (gray) { // TYPE_USHORT_GRAY
+                        return toBufferedImage(
+                                new DataBufferUShort(frame.exportImagePixelsAsGrayShorts(x, y, width, height), pixels),
+                                width, height, GRAY_BAND_OFFSETS, true, false);
+                    } else if (hasAlpha) {
+                        return toBufferedImage(
+                                new DataBufferUShort(frame.exportImagePixelsAsRGBAShorts(x, y, width, height), 4 * pixels),
+                                width, height, RGBA_BAND_OFFSETS, false, true);
+                    } else {
+                        return toBufferedImage(
+                                new DataBufferUShort(frame.exportImagePixelsAsRGBShorts(x, y, width, height), 3 * pixels),
+                                width, height, RGB_BAND_OFFSETS, false, false);
+                    }
+                case 32:
+                case 64:
+                    // normalized floats, values of HDRI builds are not clamped to 0..1
+                    if (gray) {
+                        return toBufferedImage(
+                                new DataBufferFloat(frame.exportImagePixelsAsGrayFloats(x, y, width, height), pixels),
+                                width, height, GRAY_BAND_OFFSETS, true, false);
+                    } else if (hasAlpha) {
+                        return toBufferedImage(
+                                new DataBufferFloat(frame.exportImagePixelsAsRGBAFloats(x, y, width, height), 4 * pixels),
+                                width, height, RGBA_BAND_OFFSETS, false, true);
+                    } else {
+                        return toBufferedImage(
+                                new DataBufferFloat(frame.exportImagePixelsAsRGBFloats(x, y, width, height), 3 * pixels),
+                                width, height, RGB_BAND_OFFSETS, false, false);
                     }
                 default:
                     throw newCantDecodeException(imageDepth, colorspaceType);
@@ -168,120 +597,337 @@ public class ImageMagickImageReader extends ImageReader {
                 + " is not supported");
     }
 
-    private static BufferedImage createRGBImageFromShorts(
-            DataBufferUShort dataBuffer,
-            int width,
-            int height,
-            int[] bandOffsets,
-            int[] bits,
-            int numBands) {
-
-        int pixelStride = numBands;
-        int scanlineStride = width * pixelStride;
-
-        SampleModel sampleModel = new PixelInterleavedSampleModel(
-                DataBuffer.TYPE_USHORT,
+    /**
+     * Wraps packed int pixels in a BufferedImage of a standard packed int type without copying.
+     * @param pixels one int per pixel in the layout of the image type.
+     * @param width width of image in pixels.
+     * @param height height of image in pixels
+     * @param imageType one of the {@code TYPE_INT_*} types of {@link BufferedImage}.
+     * @return the created buffered image.
+     */
+    private static BufferedImage toPackedBufferedImage(int[] pixels, int width, int height, int imageType) {
+        DirectColorModel colorModel = (DirectColorModel) ImageTypeSpecifier
+                .createFromBufferedImageType(imageType)
+                .getColorModel();
+        WritableRaster raster = Raster.createPackedRaster(
+                new DataBufferInt(pixels, pixels.length),
                 width,
                 height,
-                pixelStride,
-                scanlineStride,
-                bandOffsets
-        );
-
-        int colorSpaceType;
-        int transparencyType;
-        boolean hasAlpha;
-        switch (numBands) {
-            case 3:
-                colorSpaceType = ColorSpace.CS_sRGB;
-                transparencyType = Transparency.OPAQUE;
-                hasAlpha = false;
-                break;
-            case 4:
-                colorSpaceType = ColorSpace.CS_sRGB;
-                transparencyType = Transparency.TRANSLUCENT;
-                hasAlpha = true;
-                break;
-            default:
-                throw new IllegalStateException();
-        }
-
-        WritableRaster raster = Raster.createWritableRaster(sampleModel, dataBuffer, null);
-
-        ColorSpace colorSpace = ColorSpace.getInstance(colorSpaceType);
-
-        ColorModel colorModel = new ComponentColorModel(
-                colorSpace,
-                bits,
-                hasAlpha,
-                false,
-                transparencyType,
-                DataBuffer.TYPE_USHORT
+                width,
+                colorModel.getMasks(),
+                null
         );
-
-        return new BufferedImage(colorModel, raster, false, null);
+        return new BufferedImage(colorModel, raster, colorModel.isAlphaPremultiplied(), null);
     }
 
     /**
-     * Convert the data buffer to a BufferedImage.
-     * @param dataBuffer data buffer to use.
-     * @param bufferedImageType the type of the BufferedImage to create.
+     * Wraps the data buffer in a BufferedImage without copying.
+     * Band offsets {2, 1, 0} on bytes result in {@link BufferedImage#TYPE_3BYTE_BGR},
+     * {3, 2, 1, 0} in {@link BufferedImage#TYPE_4BYTE_ABGR} and gray
+     * in {@link BufferedImage#TYPE_BYTE_GRAY} or {@link BufferedImage#TYPE_USHORT_GRAY}.
+     * @param dataBuffer pixel interleaved data buffer to use.
      * @param width width of image in pixels.
      * @param height height of image in pixels
-     * @param numBands number of bands per pixel.
-     * @param bandOffsets the offsets of each gun in the array.
+     * @param bandOffsets the offsets of the color model bands (R, G, B, A or gray) in a pixel.
+     * @param gray whether the image is gray or sRGB.
+     * @param hasAlpha whether the last band is a non-premultiplied alpha band.
      * @return the created buffered image.
      */
-    private static BufferedImage toBufferedImage(DataBuffer dataBuffer, int bufferedImageType, int width, int height, int numBands, int[] bandOffsets) {
-        int pixelStride = numBands;
-        int scanlineStride = width * pixelStride;
-
-        WritableRaster raster = Raster.createInterleavedRaster(
+    private static BufferedImage toBufferedImage(DataBuffer dataBuffer, int width, int height, int[] bandOffsets, boolean gray, boolean hasAlpha) {
+        // createInterleavedRaster only supports byte and ushort data, not floats
+        WritableRaster raster = Raster.createWritableRaster(
+                createSampleModel(dataBuffer.getDataType(), width, height, bandOffsets),
                 dataBuffer,
+                null
+        );
+        ColorModel colorModel = createColorModel(dataBuffer.getDataType(), bandOffsets.length, gray, hasAlpha);
+        return new BufferedImage(colorModel, raster, false, null);
+    }
+
+    /** Creates the sample model of pixel interleaved exports without padding. */
+    private static SampleModel createSampleModel(int dataType, int width, int height, int[] bandOffsets) {
+        int pixelStride = bandOffsets.length;
+        return new PixelInterleavedSampleModel(
+                dataType,
                 width,
                 height,
-                scanlineStride,
                 pixelStride,
-                bandOffsets,
-                null
+                width * pixelStride,
+                bandOffsets
         );
+    }
+
+    /** Creates the color model of gray or sRGB exports with full-size samples. */
+    private static ColorModel createColorModel(int dataType, int bands, boolean gray, boolean hasAlpha) {
+        int[] bits = new int[bands];
+        Arrays.fill(bits, DataBuffer.getDataTypeSize(dataType));
+        return new ComponentColorModel(
+                ColorSpace.getInstance(gray ? ColorSpace.CS_GRAY : ColorSpace.CS_sRGB),
+                bits,
+                hasAlpha,
+                false,
+                hasAlpha ? Transparency.TRANSLUCENT : Transparency.OPAQUE,
+                dataType
+        );
+    }
 
-        BufferedImage image = new BufferedImage(width, height, bufferedImageType);
-        image.setData(raster);
+    /** Prepares the input so that it can be passed to ImageMagick repeatedly. */
+    private void ensureInput() throws IOException {
+        if (inputData != null || streamStart >= 0) return;
+        if (stream == null && file == null) throw new IllegalStateException("No input set");
 
-        return image;
+        if (file != null) {
+            // map the file, the page cache backs the blob
+            inputArena = Arena.ofShared();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                inputData = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size(), inputArena);
+            }
+        } else if (stream.length() < 0 && magick.supportsCustomStreams()) {
+            // unknown size, let ImageMagick pull the data
+            streamStart = stream.getStreamPosition();
+        } else {
+            inputArena = Arena.ofShared();
+            inputData = SpiCommon.readFully(stream, inputArena);
+        }
+    }
+
+    /** Reads or pings the input into the given wand.
+     * @param target the wand to load the images into.
+     * @param ping whether to only read the image attributes.
+     * */
+    private void load(NativeMagick.MagickWand target, boolean ping) throws IOException, MagickException {
+        ensureInput();
+        if (inputData != null) {
+            if (ping) {
+                target.pingBlob(inputData);
+            } else {
+                target.readBlob(inputData);
+            }
+        } else {
+            stream.seek(streamStart);
+            if (ping) {
+                target.pingStream(stream);
+            } else {
+                target.readStream(stream);
+            }
+        }
     }
 
     private void ensureLoaded() throws IOException {
         if (hasData) return;
-        if (stream == null) throw new IllegalStateException("No input set");
 
-        inputData = SpiCommon.readFully(stream);
         try {
-            wand.readBlob(inputData);
+            NativeMagick.MagickWand loaded = magick.new MagickWand();
+            try {
+                load(loaded, false);
+            } catch (MagickException | IOException e) {
+                loaded.close();
+                throw e;
+            }
+            wand = loaded;
             hasData = true;
         } catch (MagickException e) {
             throw new IOException(e);
         }
     }
 
+    /** Gets a wand positioned at the decoded frame.
+     * Blob and file inputs only decode the requested frame, streams
+     * are decoded as a whole.
+     * @param imageIndex the index of the frame.
+     * @param renderSize the size to render the frame at, or {@code null} for the original size.
+     *                   Only blob and file inputs are rendered at that size.
+     * */
+    private NativeMagick.MagickWand ensureFrame(int imageIndex, Dimension renderSize) throws IOException, MagickException {
+        if (imageIndex < 0) throw new IndexOutOfBoundsException();
+        if (imageIndex >= ensureHeader().getNumberImages()) throw new IndexOutOfBoundsException();
+        ensureInput();
+        if (hasData || inputData == null) {
+            ensureLoaded();
+            wand.setIteratorIndex(imageIndex);
+            return wand;
+        }
+
+        FrameKey key = new FrameKey(imageIndex, renderSize != null ? new Dimension(renderSize) : null);
+        NativeMagick.MagickWand frame = frames.get(key);
+        if (frame == null) {
+            frame = magick.new MagickWand();
+            try {
+                frame.setFilename(String.format(SUBIMAGE_FILENAME, imageIndex));
+                if (renderSize != null) {
+                    // lets libjpeg decode at a reduced DCT scale
+                    frame.setOption(JPEG_SIZE_OPTION, renderSize.width + "x" + renderSize.height);
+                }
+                frame.readBlob(inputData);
+                // a coder might ignore the subimage selection
+                frame.setIteratorIndex(frame.getNumberImages() > 1 ? imageIndex : 0);
+                if (renderSize != null
+                        && (frame.getImageWidth() != renderSize.width || frame.getImageHeight() != renderSize.height)) {
+                    frame.scaleImage(renderSize.width, renderSize.height);
+                }
+            } catch (MagickException e) {
+                frame.close();
+                throw e;
+            }
+            frames.put(key, frame);
+        }
+        frame.setIteratorIndex(frame.getNumberImages() > 1 ? imageIndex : 0);
+        return frame;
+    }
+
+    /** Gets a wand holding at least the image attributes, positioned at the image. */
+    private NativeMagick.MagickWand ensureHeader(int imageIndex) throws IOException {
+        if (imageIndex < 0) throw new IndexOutOfBoundsException();
+        NativeMagick.MagickWand header = ensureHeader();
+        try {
+            if (imageIndex >= header.getNumberImages()) throw new IndexOutOfBoundsException();
+            header.setIteratorIndex(imageIndex);
+            return header;
+        } catch (MagickException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /** Gets the attributes of a frame, reading them from the header wand on first access. */
+    private FrameHeader getHeader(int imageIndex) throws IOException {
+        FrameHeader header = headers.get(imageIndex);
+        if (header == null) {
+            try {
+                header = FrameHeader.of(ensureHeader(imageIndex));
+            } catch (MagickException e) {
+                throw new IOException(e);
+            }
+            headers.put(imageIndex, header);
+        }
+        return header;
+    }
+
+    /** Gets a wand holding at least the image attributes.
+     * If the images were not decoded yet, the input is only pinged.
+     * */
+    private NativeMagick.MagickWand ensureHeader() throws IOException {
+        if (hasData) return wand;
+        if (pingWand != null) return pingWand;
+
+        try {
+            NativeMagick.MagickWand pinged = magick.new MagickWand();
+            try {
+                load(pinged, true);
+            } catch (MagickException e) {
+                // not every coder supports pinging
+                pinged.close();
+                ensureLoaded();
+                return wand;
+            } catch (IOException e) {
+                pinged.close();
+                throw e;
+            }
+            pingWand = pinged;
+            return pingWand;
+        } catch (MagickException e) {
+            throw new IOException(e);
+        }
+    }
+
     @Override
     public void dispose() {
         super.dispose();
+        closeWands();
+        headers.clear();
+        releaseInputData();
+        hasData = false;
+    }
+
+    /** Gets the number of decoded images held in native memory.
+     * Blob and file inputs only hold the frames read so far.
+     * */
+    int getDecodedImageCount() throws MagickException {
+        long count = hasData ? wand.getNumberImages() : 0;
+        for (NativeMagick.MagickWand frame : frames.values()) {
+            count += frame.getNumberImages();
+        }
+        return (int) count;
+    }
+
+    /** Closes the wands, if any. */
+    private void closeWands() {
         if (wand != null) {
             wand.close();
             wand = null;
         }
+        if (pingWand != null) {
+            pingWand.close();
+            pingWand = null;
+        }
+        frames.values().forEach(NativeMagick.MagickWand::close);
+        frames.clear();
+    }
+
+    /** Frees the native copy or mapping of the input data, if any. */
+    private void releaseInputData() {
+        if (inputArena != null) {
+            inputArena.close();
+            inputArena = null;
+        }
         inputData = null;
-        hasData = false;
+        streamStart = -1;
     }
 
     @Override
     public Iterator<ImageTypeSpecifier> getImageTypes(int imageIndex) throws IOException {
-        ensureLoaded();
-        BufferedImage image = read(imageIndex);
-        ImageTypeSpecifier imageTypeSpecifier = new ImageTypeSpecifier(image);
-        return Arrays.asList(imageTypeSpecifier).iterator();
+        FrameHeader header = getHeader(imageIndex);
+        List<ImageTypeSpecifier> imageTypes = new ArrayList<>();
+        // the natural type wraps the exported pixels without conversion
+        imageTypes.add(getNaturalImageType(header));
+        // packed int types are exported natively
+        if (header.hasAlpha()) {
+            imageTypes.add(ImageTypeSpecifier.createFromBufferedImageType(BufferedImage.TYPE_INT_ARGB));
+            imageTypes.add(ImageTypeSpecifier.createFromBufferedImageType(BufferedImage.TYPE_INT_ARGB_PRE));
+        } else {
+            imageTypes.add(ImageTypeSpecifier.createFromBufferedImageType(BufferedImage.TYPE_INT_RGB));
+        }
+        return imageTypes.iterator();
+    }
+
+    /** Gets the type {@link #read(NativeMagick.MagickWand, int, int, int, int)} creates
+     * for a frame with the attributes of the header, without decoding any pixels.
+     * The color and sample models are built like in the read, so the type equals
+     * {@link ImageTypeSpecifier#createFromRenderedImage(java.awt.image.RenderedImage)}
+     * of the image read.
+     * */
+    private ImageTypeSpecifier getNaturalImageType(FrameHeader header) throws IOException {
+        int dataType;
+        int[] bandOffsets;
+        switch (header.depth()) {
+            case 8:
+                dataType = DataBuffer.TYPE_BYTE;
+                bandOffsets = header.isGray() ? GRAY_BAND_OFFSETS
+                        : header.hasAlpha() ? ABGR_BAND_OFFSETS : BGR_BAND_OFFSETS;
+                break;
+            case 16:
+                dataType = DataBuffer.TYPE_USHORT;
+                bandOffsets = header.isGray() ? GRAY_BAND_OFFSETS
+                        : header.hasAlpha() ? RGBA_BAND_OFFSETS : RGB_BAND_OFFSETS;
+                break;
+            case 32:
+            case 64:
+                dataType = DataBuffer.TYPE_FLOAT;
+                bandOffsets = header.isGray() ? GRAY_BAND_OFFSETS
+                        : header.hasAlpha() ? RGBA_BAND_OFFSETS : RGB_BAND_OFFSETS;
+                break;
+            default:
+                throw newCantDecodeException(header.depth(), header.colorspace());
+        }
+        // gray exports have no alpha band, like in the read
+        boolean hasAlpha = header.hasAlpha() && !header.isGray();
+        ImageTypeSpecifier imageType = new ImageTypeSpecifier(
+                createColorModel(dataType, bandOffsets.length, header.isGray(), hasAlpha),
+                createSampleModel(dataType, header.width(), header.height(), bandOffsets));
+        // standard layouts are specified by type, like createFromRenderedImage does
+        int bufferedImageType = imageType.getBufferedImageType();
+        return bufferedImageType != BufferedImage.TYPE_CUSTOM
+                ? ImageTypeSpecifier.createFromBufferedImageType(bufferedImageType)
+                : imageType;
     }
 
     @Override
@@ -2,9 +2,12 @@ package de.sfuhrm.imagemagick.spi;
 
 import javax.imageio.spi.ImageReaderSpi;
 import javax.imageio.spi.ServiceRegistry;
+import javax.imageio.stream.FileImageInputStream;
 import javax.imageio.stream.ImageInputStream;
 import javax.imageio.ImageReader;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.Locale;
 
 /**
@@ -27,6 +30,9 @@ public class ImageMagickImageReaderSpi extends ImageReaderSpi {
 
     private static final String[] WRITER_SPI_NAMES = null; // no paired writer for now
 
+    /** The number of leading bytes inspected for detecting the format. */
+    private static final int PROBE_SIZE = 4 * 1024;
+
     public ImageMagickImageReaderSpi() {
         super(
                 SpiCommon.getProperties().getProperty(SpiCommon.NAME_PROPERTY, "unknown"),
@@ -35,7 +41,7 @@ public class ImageMagickImageReaderSpi extends ImageReaderSpi {
                 SpiCommon.getSuffixes(),
                 SpiCommon.getMimeTypes(),
                 READER_CLASS_NAME,
-                new Class[]{ImageInputStream.class},
+                new Class[]{ImageInputStream.class, File.class, Path.class},
                 WRITER_SPI_NAMES,
                 false,
                 null, null, null, null,
@@ -45,18 +51,24 @@ public class ImageMagickImageReaderSpi extends ImageReaderSpi {
 
     @Override
     public boolean canDecodeInput(Object source) throws IOException {
+        if (source instanceof File || source instanceof Path) {
+            File file = source instanceof Path path ? path.toFile() : (File) source;
+            try (ImageInputStream stream = new FileImageInputStream(file)) {
+                return canDecodeInput(stream);
+            }
+        }
         if (!(source instanceof ImageInputStream stream)) {
             return false;
         }
 
+        byte[] header;
         stream.mark();
-        byte[] data = SpiCommon.readFully(stream);
-        stream.reset();
         try {
-            return NativeMagick.instance().canRead(data);
-        } catch (MagickException e) {
-            return false;
+            header = SpiCommon.readPrefix(stream, PROBE_SIZE);
+        } finally {
+            stream.reset();
         }
+        return NativeMagick.instance().detectFormat(header).isPresent();
     }
 
     @Override
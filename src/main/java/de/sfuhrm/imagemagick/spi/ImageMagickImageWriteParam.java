@@ -0,0 +1,95 @@
+package de.sfuhrm.imagemagick.spi;
+
+import javax.imageio.ImageWriteParam;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Write parameters for the {@link ImageMagickImageWriter}.
+ * The parameters map onto the ImageMagick encoder settings:
+ * <ul>
+ *     <li>The compression types are the ImageMagick compression names,
+ *     like {@code Zip}, {@code LZW}, {@code JPEG} or {@code None}.
+ *     Which of them are valid depends on the output format.</li>
+ *     <li>The compression quality is the ImageMagick quality scaled to 0..1.
+ *     For PNG, 1 is the fastest and 0 the strongest zlib compression,
+ *     like with the PNG writer of the JDK.</li>
+ *     <li>Progressive mode interlaces JPEG, PNG and GIF output, for example
+ *     progressive JPEG or Adam7 PNG.</li>
+ *     <li>Tiling sets the tile size of TIFF output.</li>
+ * </ul>
+ * Settings left in their default mode keep the ImageMagick defaults.
+ */
+public class ImageMagickImageWriteParam extends ImageWriteParam {
+
+    /** Constructs write parameters with default settings.
+     * Without a format, neither progressive mode nor tiling is offered.
+     * */
+    public ImageMagickImageWriteParam() {
+        this(Locale.getDefault());
+    }
+
+    /** Constructs write parameters with default settings.
+     * Without a format, neither progressive mode nor tiling is offered.
+     * @param locale the locale for the compression descriptions.
+     * */
+    public ImageMagickImageWriteParam(Locale locale) {
+        this(locale, null);
+    }
+
+    /** Constructs write parameters with default settings for a format.
+     * @param locale the locale for the compression descriptions.
+     * @param formatMagickName the ImageMagick name of the output format,
+     *                         deciding on progressive mode and tiling.
+     * */
+    public ImageMagickImageWriteParam(Locale locale, String formatMagickName) {
+        super(locale);
+        canWriteCompressed = true;
+        canWriteProgressive = formatMagickName != null && toInterlaceType(formatMagickName).isPresent();
+        canWriteTiles = formatMagickName != null && isTiledFormat(formatMagickName);
+        compressionTypes = Arrays.stream(CompressionType.values())
+                .filter(compressionType -> compressionType != CompressionType.UndefinedCompression)
+                .map(CompressionType::getName)
+                .toArray(String[]::new);
+    }
+
+    /** Gets the progressive interlacing for the format.
+     * @return the interlacing, or empty if the format has no progressive mode.
+     * */
+    static Optional<InterlaceType> toInterlaceType(String formatMagickName) {
+        switch (formatMagickName) {
+            case "JPEG":
+            case "JPG":
+            case "JPE":
+            case "PJPEG":
+                return Optional.of(InterlaceType.JPEGInterlace);
+            case "PNG":
+            case "PNG00":
+            case "PNG8":
+            case "PNG24":
+            case "PNG32":
+            case "PNG48":
+            case "PNG64":
+                return Optional.of(InterlaceType.PNGInterlace);
+            case "GIF":
+            case "GIF87":
+                return Optional.of(InterlaceType.GIFInterlace);
+            default:
+                return Optional.empty();
+        }
+    }
+
+    /** Whether the format honors the tile size of the {@code tiff:tile-geometry} option. */
+    static boolean isTiledFormat(String formatMagickName) {
+        switch (formatMagickName) {
+            case "TIFF":
+            case "TIF":
+            case "TIFF64":
+            case "PTIF":
+                return true;
+            default:
+                return false;
+        }
+    }
+}
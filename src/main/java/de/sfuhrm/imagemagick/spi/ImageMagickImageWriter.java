@@ -6,11 +6,18 @@ import javax.imageio.metadata.IIOMetadata;
 import javax.imageio.spi.ImageWriterSpi;
 import javax.imageio.stream.ImageOutputStream;
 import javax.imageio.IIOImage;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
 import java.awt.image.DataBuffer;
-import java.awt.image.DataBufferByte;
-import java.awt.image.DataBufferUShort;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
 import java.io.IOException;
+import java.util.Optional;
 
 /**
  * ImageMagickImageWriter - ImageIO writer backed by ImageMagick via FFM API.
@@ -23,14 +30,32 @@ import java.io.IOException;
  */
 public class ImageMagickImageWriter extends ImageWriter {
 
+    /** The number of rows converted at once for images without a direct import. */
+    private static final int BAND_ROWS = 64;
+
+    /** Coder option with the tile size of TIFF output. */
+    private static final String TILE_GEOMETRY_OPTION = "tiff:tile-geometry";
+
+    /** Coder option with the sample format of the pixels written. */
+    private static final String QUANTUM_FORMAT_OPTION = "quantum:format";
+
+    /** The depth of images with float or double components. */
+    private static final int FLOATING_POINT_DEPTH = 32;
+
+    /** The ones digit of the PNG quality selecting adaptive filtering. */
+    private static final int PNG_ADAPTIVE_FILTER = 5;
+
     private final NativeMagick magick;
     private NativeMagick.MagickWand wand;
     private ImageOutputStream output;
     private AbstractImageMagickImageWriterSpi imageMagickImageWriterSpi;
 
+    /** Whether a sequence was prepared and images are collected in the wand. */
+    private boolean sequencePrepared;
+
     protected ImageMagickImageWriter(ImageWriterSpi originatingProvider) {
         super(originatingProvider);
-        this.magick = new NativeMagick();
+        this.magick = NativeMagick.instance();
         this.imageMagickImageWriterSpi = (AbstractImageMagickImageWriterSpi) originatingProvider;
     }
 
@@ -41,6 +66,7 @@ public class ImageMagickImageWriter extends ImageWriter {
         }
         super.setOutput(output);
         this.output = (ImageOutputStream) output;
+        this.sequencePrepared = false;
         if (wand != null) {
             wand.close();
             wand = null;
@@ -51,6 +77,11 @@ public class ImageMagickImageWriter extends ImageWriter {
         }
     }
 
+    @Override
+    public ImageWriteParam getDefaultWriteParam() {
+        return new ImageMagickImageWriteParam(getLocale(), imageMagickImageWriterSpi.getMagickName());
+    }
+
     @Override
     public IIOMetadata getDefaultStreamMetadata(ImageWriteParam param) {
         return null;
@@ -76,90 +107,263 @@ public class ImageMagickImageWriter extends ImageWriter {
         if (output == null) {
             throw new IllegalStateException("No output has been set");
         }
+        if (sequencePrepared) {
+            throw new IllegalStateException("A sequence is being written");
+        }
+        checkImage(image);
+
+        try {
+            resetWand();
+            addImage(image.getRenderedImage(), param);
+            wand.writeImageBlob(output);
+            output.flush();
+        } catch (Throwable e) {
+            throw new IOException("Failed to write image via ImageMagick", e);
+        }
+    }
+
+    /** Whether the format can hold multiple images, like multi-page TIFF or PDF and animated GIF or WebP. */
+    @Override
+    public boolean canWriteSequence() {
+        return magick.isMultiImageFormat(imageMagickImageWriterSpi.getMagickName());
+    }
+
+    @Override
+    public void prepareWriteSequence(IIOMetadata streamMetadata) throws IOException {
+        if (output == null) {
+            throw new IllegalStateException("No output has been set");
+        }
+        if (!canWriteSequence()) {
+            throw new UnsupportedOperationException("Format "
+                    + imageMagickImageWriterSpi.getMagickName() + " can not hold multiple images");
+        }
+        try {
+            resetWand();
+        } catch (MagickException e) {
+            throw new IOException("Failed to prepare sequence via ImageMagick", e);
+        }
+        sequencePrepared = true;
+    }
+
+    /** Appends an image to the sequence.
+     * The images are collected in the native wand and encoded at
+     * {@link #endWriteSequence()}, because MagickWand has no way to encode
+     * images of a file one by one. The Java side keeps no pixels of written images.
+     * */
+    @Override
+    public void writeToSequence(IIOImage image, ImageWriteParam param) throws IOException {
+        if (!sequencePrepared) {
+            throw new IllegalStateException("prepareWriteSequence was not called");
+        }
+        checkImage(image);
+        try {
+            addImage(image.getRenderedImage(), param);
+        } catch (Throwable e) {
+            throw new IOException("Failed to add image via ImageMagick", e);
+        }
+    }
+
+    @Override
+    public void endWriteSequence() throws IOException {
+        if (!sequencePrepared) {
+            throw new IllegalStateException("prepareWriteSequence was not called");
+        }
+        sequencePrepared = false;
+        try {
+            wand.writeImagesBlob(output);
+            output.flush();
+        } catch (Throwable e) {
+            throw new IOException("Failed to write sequence via ImageMagick", e);
+        } finally {
+            wand.close();
+            wand = null;
+        }
+    }
+
+    private static void checkImage(IIOImage image) {
         if (image == null || image.getRenderedImage() == null) {
             throw new IllegalArgumentException("image == null or no rendered image");
         }
+    }
 
-        BufferedImage buffered = convertToBuffered(image.getRenderedImage());
-        String formatMagickName = imageMagickImageWriterSpi.getMagickName();;
+    /** Replaces the wand with a new empty one. */
+    private void resetWand() throws MagickException {
+        if (wand != null) {
+            wand.close();
+            wand = null;
+        }
+        wand = magick.new MagickWand();
+    }
 
-        try {
-            DataBuffer dataBuffer = buffered.getData().getDataBuffer();
-            if (dataBuffer instanceof DataBufferByte) {
-                byte[] pixels = ((DataBufferByte) dataBuffer).getData();
-                String mapName;
-                int wordsInPixels;
-                switch (buffered.getType()) {
-                    case BufferedImage.TYPE_BYTE_GRAY:
-                        mapName = "I";
-                        wordsInPixels = 1;
-                        break;
-                    case BufferedImage.TYPE_3BYTE_BGR:
-                        mapName = "BGR";
-                        wordsInPixels = 3;
-                        break;
-                    case BufferedImage.TYPE_4BYTE_ABGR:
-                        mapName = "ABGR";
-                        wordsInPixels = 4;
-                        break;
-                    default:
-                        throw new IOException("Could not detect type, BufferedImage.type==" + buffered.getType());
-                };
-                wand.newImage(buffered.getWidth(), buffered.getHeight());
-                wand.importImagePixelsAsBytes(pixels, mapName, wordsInPixels, buffered.getWidth(), buffered.getHeight());
-                wand.setImageFormat(formatMagickName);
-                byte[] imageData = wand.getImageBlob();
-                output.write(imageData);
-            } else if (dataBuffer instanceof DataBufferUShort) {
-                short[] pixels = ((DataBufferUShort) dataBuffer).getData();
-                String mapName;
-                int wordsInPixels;
-                switch (buffered.getType()) {
-                    case BufferedImage.TYPE_USHORT_GRAY:
-                        mapName = "I";
-                        wordsInPixels = 1;
-                        break;
-                    default:
-                        switch (buffered.getData().getNumBands()) {
-                            case 3:
-                                mapName = "RGB";
-                                wordsInPixels = 3;
-                                break;
-                            case 4:
-                                mapName = "RGBA";
-                                wordsInPixels = 4;
-                                break;
-                            default:
-                                throw new IOException("Could not detect type, BufferedImage.type==" + buffered.getType());
+    /** Appends the image to the wand, ready for encoding with the settings of the param. */
+    private void addImage(RenderedImage rendered, ImageWriteParam param) throws MagickException {
+        String formatMagickName = imageMagickImageWriterSpi.getMagickName();
+        wand.newImage(rendered.getWidth(), rendered.getHeight());
+        if (importPixels(rendered)) {
+            wand.setImageAlphaChannel(AlphaChannelOption.DisassociateAlphaChannel);
+        }
+        int dataType = rendered.getSampleModel().getDataType();
+        if (dataType == DataBuffer.TYPE_FLOAT || dataType == DataBuffer.TYPE_DOUBLE) {
+            // keep floats for encoders like TIFF that write the image depth
+            wand.setImageDepth(FLOATING_POINT_DEPTH);
+            wand.setOption(QUANTUM_FORMAT_OPTION, "floating-point");
+        }
+        wand.setImageFormat(formatMagickName);
+        applyWriteParam(param, formatMagickName);
+    }
+
+    /** Maps the settings of the param onto the encoder settings of the wand.
+     * Settings in default mode keep the ImageMagick defaults.
+     * @see ImageMagickImageWriteParam
+     * */
+    private void applyWriteParam(ImageWriteParam param, String formatMagickName) throws MagickException {
+        if (param == null) {
+            return;
+        }
+        if (param.canWriteCompressed()) {
+            switch (param.getCompressionMode()) {
+                case ImageWriteParam.MODE_DISABLED:
+                    wand.setCompression(CompressionType.NoCompression);
+                    break;
+                case ImageWriteParam.MODE_EXPLICIT:
+                    if (param.getCompressionType() != null) {
+                        if (param instanceof ImageMagickImageWriteParam) {
+                            wand.setCompression(CompressionType.forName(param.getCompressionType()));
                         }
-                };
-                wand.newImage(buffered.getWidth(), buffered.getHeight());
-                wand.importImagePixelsAsShorts(pixels, mapName, wordsInPixels, buffered.getWidth(), buffered.getHeight());
-                wand.setImageFormat(formatMagickName);
-                byte[] imageData = wand.getImageBlob();
-                output.write(imageData);
-            } else {
-                throw new IOException("Only 8 and 16 bit types are supported at the moment");
+                        wand.setCompressionQuality(toMagickQuality(param.getCompressionQuality(), formatMagickName));
+                    }
+                    break;
+                default:
+                    break;
             }
-            output.flush();
-        } catch (Throwable e) {
-            throw new IOException("Failed to write image via ImageMagick", e);
+        }
+        // other formats keep their layout, interlacing changes it for raw formats
+        Optional<InterlaceType> interlaceType = ImageMagickImageWriteParam.toInterlaceType(formatMagickName);
+        if (param.canWriteProgressive() && interlaceType.isPresent()) {
+            switch (param.getProgressiveMode()) {
+                case ImageWriteParam.MODE_DISABLED:
+                    wand.setInterlaceScheme(InterlaceType.NoInterlace);
+                    break;
+                case ImageWriteParam.MODE_DEFAULT:
+                    wand.setInterlaceScheme(interlaceType.get());
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (param.canWriteTiles() && param.getTilingMode() == ImageWriteParam.MODE_EXPLICIT
+                && ImageMagickImageWriteParam.isTiledFormat(formatMagickName)) {
+            wand.setOption(TILE_GEOMETRY_OPTION, param.getTileWidth() + "x" + param.getTileHeight());
         }
     }
 
-    private BufferedImage convertToBuffered(java.awt.image.RenderedImage img) {
-        if (img instanceof BufferedImage bi) {
-            return bi;
+    /** Maps an ImageIO compression quality to the ImageMagick quality.
+     * The PNG quality of ImageMagick has the zlib level as tens digit, here
+     * high quality means fast compression like with the PNG writer of the JDK.
+     * */
+    private static long toMagickQuality(float quality, String formatMagickName) {
+        switch (formatMagickName) {
+            case "PNG":
+            case "PNG00":
+            case "PNG8":
+            case "PNG24":
+            case "PNG32":
+            case "PNG48":
+            case "PNG64":
+            case "MNG":
+                int zlibLevel = 9 - Math.round(9 * quality);
+                return zlibLevel * 10L + PNG_ADAPTIVE_FILTER;
+            default:
+                return Math.round(100 * quality);
+        }
+    }
+
+    /** Imports the pixels of the image into the wand.
+     * Buffered images are copied in bands of rows of the same layout, other images are imported
+     * directly from their tiles. Images without a direct import are converted in bands of rows.
+     * @return whether the imported pixels have premultiplied alpha.
+     * @see RasterLayout
+     * */
+    private boolean importPixels(RenderedImage rendered) throws MagickException {
+        ColorModel colorModel = rendered.getColorModel();
+        if (colorModel == null) {
+            importConverted(rendered);
+            return false;
+        }
+        if (rendered instanceof BufferedImage buffered) {
+            // copied in bands of the same layout, importing from the raster itself
+            // would take its arrays and Java2D would stop accelerating the image
+            WritableRaster raster = buffered.getRaster();
+            int width = buffered.getWidth();
+            int height = buffered.getHeight();
+            WritableRaster band = raster.createCompatibleWritableRaster(width, Math.max(1, Math.min(BAND_ROWS, height)));
+            Optional<RasterLayout> layout = RasterLayout.of(band, colorModel);
+            if (layout.isPresent()) {
+                for (int y = 0; y < height; y += band.getHeight()) {
+                    int rows = Math.min(band.getHeight(), height - y);
+                    // the raster of a buffered image always starts at 0, 0
+                    band.setDataElements(0, 0, raster.createChild(0, y, width, rows, 0, 0, null));
+                    layout.get().importPixels(wand, 0, y, 0, 0, width, rows);
+                }
+                return layout.get().isAlphaPremultiplied();
+            }
+        } else {
+            Rectangle bounds = new Rectangle(rendered.getMinX(), rendered.getMinY(),
+                    rendered.getWidth(), rendered.getHeight());
+            boolean premultiplied = false;
+            boolean imported = true;
+            for (int tileY = rendered.getMinTileY(); imported && tileY < rendered.getMinTileY() + rendered.getNumYTiles(); tileY++) {
+                for (int tileX = rendered.getMinTileX(); imported && tileX < rendered.getMinTileX() + rendered.getNumXTiles(); tileX++) {
+                    Raster tile = rendered.getTile(tileX, tileY);
+                    Optional<RasterLayout> layout = RasterLayout.of(tile, colorModel);
+                    Rectangle area = tile.getBounds().intersection(bounds);
+                    if (layout.isEmpty()) {
+                        imported = false;
+                    } else if (!area.isEmpty()) {
+                        layout.get().importPixels(wand, area.x - bounds.x, area.y - bounds.y,
+                                area.x, area.y, area.width, area.height);
+                        premultiplied = layout.get().isAlphaPremultiplied();
+                    }
+                }
+            }
+            if (imported) {
+                return premultiplied;
+            }
+        }
+        // no direct import for this layout, e.g. indexed colors
+        importConverted(rendered);
+        return false;
+    }
+
+    /** Converts the image in bands of rows to a type that can be imported directly
+     * and imports the bands. Only one band is held in memory at a time.
+     * */
+    private void importConverted(RenderedImage rendered) throws MagickException {
+        int width = rendered.getWidth();
+        int height = rendered.getHeight();
+        ColorModel colorModel = rendered.getColorModel();
+        boolean hasAlpha = colorModel == null || colorModel.hasAlpha();
+        BufferedImage band = new BufferedImage(width, Math.max(1, Math.min(BAND_ROWS, height)),
+                hasAlpha ? BufferedImage.TYPE_4BYTE_ABGR : BufferedImage.TYPE_3BYTE_BGR);
+        RasterLayout bandLayout = RasterLayout.of(band.getRaster(), band.getColorModel()).orElseThrow();
+        for (int y = 0; y < height; y += band.getHeight()) {
+            Graphics2D graphics = band.createGraphics();
+            try {
+                graphics.setComposite(AlphaComposite.Src);
+                graphics.drawRenderedImage(rendered, AffineTransform.getTranslateInstance(
+                        -rendered.getMinX(), -rendered.getMinY() - y));
+            } finally {
+                graphics.dispose();
+            }
+            bandLayout.importPixels(wand, 0, y, 0, 0, width, Math.min(band.getHeight(), height - y));
         }
-        BufferedImage copy = new BufferedImage(img.getWidth(), img.getHeight(), BufferedImage.TYPE_INT_ARGB);
-        copy.getGraphics().drawImage((BufferedImage) img, 0, 0, null);
-        return copy;
     }
 
     @Override
     public void dispose() {
         super.dispose();
         output = null;
+        sequencePrepared = false;
         if (wand != null) {
             wand.close();
             wand = null;
@@ -0,0 +1,13 @@
+package de.sfuhrm.imagemagick.spi;
+
+/** ImageMagick specific interlace type values. */
+enum InterlaceType {
+    UndefinedInterlace,
+    NoInterlace,
+    LineInterlace,
+    PlaneInterlace,
+    PartitionInterlace,
+    GIFInterlace,
+    JPEGInterlace,
+    PNGInterlace
+}
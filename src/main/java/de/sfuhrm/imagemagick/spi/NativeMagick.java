@@ -1,5 +1,8 @@
 package de.sfuhrm.imagemagick.spi;
 
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.io.IOException;
 import java.lang.foreign.Linker;
 import java.lang.foreign.Arena;
 import java.lang.foreign.FunctionDescriptor;
@@ -7,11 +10,16 @@ import java.lang.foreign.MemorySegment;
 import java.lang.foreign.SymbolLookup;
 import java.lang.foreign.ValueLayout;
 import java.lang.invoke.MethodHandle;
+import java.lang.ref.Cleaner;
+import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
+import java.util.Deque;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * FFM-based wrapper around key MagickWand functions using the
@@ -22,7 +30,7 @@ import java.util.TreeSet;
 final class NativeMagick implements AutoCloseable {
 
     // Candidate library names (platform differences)
-    private static final String[] LIB_NAMES = {
+    static final String[] LIB_NAMES = {
             "MagickWand",
             "MagickWand-7.Q16HDRI",
             "MagickWand-7",
@@ -33,134 +41,380 @@ final class NativeMagick implements AutoCloseable {
     private static final int MagickFalse = 0;
     private static final int MagickTrue = 1;
 
-    private final Linker linker = Linker.nativeLinker();
-    private final SymbolLookup lookup;
-
-    // Function handles
-    private final MethodHandle wandGenesis;
-    private final MethodHandle wandTerminus;
-    private final MethodHandle newWand;
-    private final MethodHandle destroyWand;
-    private final MethodHandle readImageBlob;
-    private final MethodHandle setImageFormat;
-    private final MethodHandle getImageBlob;
-    private final MethodHandle relinquishMemory;
-    private final MethodHandle getException;
-    private final MethodHandle resetIterator;
-    private final MethodHandle queryFormats;
-    private final MethodHandle getNumberImages;
-    private final MethodHandle getImageWidth;
-    private final MethodHandle getImageHeight;
-    private final MethodHandle getImageDepth;
-    private final MethodHandle getImageColorspace;
-    private final MethodHandle getImageAlphaChannel;
-    private final MethodHandle setIteratorIndex;
-    private final MethodHandle exportImagePixels;
-    private final MethodHandle importImagePixels;
-    private final MethodHandle newImage;
-    private final MethodHandle newPixelWand;
-    private final MethodHandle destroyPixelWand;
+    /** The size of ImageMagick's {@code MagickPathExtent} string buffers. */
+    private static final int MagickPathExtent = 4096;
 
+    /** The chunk size for transferring native blobs to streams. */
+    private static final int BLOB_CHUNK_SIZE = 64 * 1024;
+
+    /** Byte map for exporting {@code 0xAARRGGBB} ints as char pixels in native byte order. */
+    private static final String ARGB_INT_MAP =
+            ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? "BGRA" : "ARGB";
+
+    /** Byte map for exporting {@code 0x00RRGGBB} ints as char pixels in native byte order. */
+    private static final String RGB_INT_MAP =
+            ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? "BGRP" : "PRGB";
+
+    /** System property with the maximum number of idle wands kept for reuse. */
+    static final String WAND_POOL_SIZE_PROPERTY = "de.sfuhrm.imagemagick.wandPoolSize";
+
+    /** The default maximum number of idle wands kept for reuse. */
+    private static final int DEFAULT_WAND_POOL_SIZE = 16;
+
+    /** Returns wands of unreachable {@link MagickWand} objects that were not closed. */
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /** Idle cleared wands, ready to be handed out again.
+     * An instance that is never closed keeps its idle wands until
+     * it becomes unreachable and the {@link #CLEANER} destroys them.
+     * */
+    private final Deque<MemorySegment> idleWands = new ConcurrentLinkedDeque<>();
+
+    /** The number of wands in {@link #idleWands}. */
+    private final AtomicInteger idleWandCount = new AtomicInteger();
+
+    /** Destroys the wands in {@link #idleWands}. */
+    private final IdleWandsRelease idleWandsRelease = new IdleWandsRelease(idleWands, idleWandCount);
+
+    /** The maximum number of idle wands. */
+    private final int wandPoolSize = Integer.getInteger(WAND_POOL_SIZE_PROPERTY, DEFAULT_WAND_POOL_SIZE);
+
+    /** Signature of the {@code CustomStreamInfo} reader callback. */
+    private static final FunctionDescriptor CUSTOM_STREAM_READER = FunctionDescriptor.of(
+            ValueLayout.JAVA_LONG, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG, ValueLayout.ADDRESS);
+
+    /** Signature of the {@code CustomStreamInfo} seeker callback. */
+    private static final FunctionDescriptor CUSTOM_STREAM_SEEKER = FunctionDescriptor.of(
+            ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG, ValueLayout.JAVA_INT, ValueLayout.ADDRESS);
+
+    /** Signature of the {@code CustomStreamInfo} teller callback. */
+    private static final FunctionDescriptor CUSTOM_STREAM_TELLER = FunctionDescriptor.of(
+            ValueLayout.JAVA_LONG, ValueLayout.ADDRESS);
+
+    /** Creates an instance with its own wand pool.
+     * The native bindings are shared by all instances and are
+     * created on first use only.
+     * @see #instance()
+     * */
     public NativeMagick() {
-        this.lookup = resolveLookup();
+        Bindings.initialize();
+        CLEANER.register(this, idleWandsRelease);
+    }
 
-        wandGenesis = downcall("MagickWandGenesis", FunctionDescriptor.ofVoid());
-        wandTerminus = downcall("MagickWandTerminus", FunctionDescriptor.ofVoid());
-        newWand = downcall("NewMagickWand", FunctionDescriptor.of(ValueLayout.ADDRESS));
-        destroyWand = downcall("DestroyMagickWand",
-                FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS));
-        readImageBlob = downcall("MagickReadImageBlob",
+    /** Gets the instance shared by all readers and writers. */
+    static NativeMagick instance() {
+        return InstanceHolder.INSTANCE;
+    }
+
+    /** Holds the shared instance, created on first access. */
+    private static final class InstanceHolder {
+        static final NativeMagick INSTANCE = new NativeMagick();
+    }
+
+    /** The library lookup and the handles of the commonly used functions.
+     * Initialized once per process on first use, which also
+     * initializes the MagickWand environment.
+     * The environment is never terminated since the handles are shared.
+     * Call sites use {@code invokeExact} with the exact types of the descriptors.
+     * Destroy functions that return {@code NULL} are bound as void.
+     * */
+    private static final class Bindings {
+        static final Linker LINKER = Linker.nativeLinker();
+        static final SymbolLookup LOOKUP = resolveLookup();
+
+        static final MethodHandle NEW_WAND = downcall("NewMagickWand", FunctionDescriptor.of(ValueLayout.ADDRESS));
+        static final MethodHandle DESTROY_WAND = downcall("DestroyMagickWand",
+                FunctionDescriptor.ofVoid(ValueLayout.ADDRESS));
+        static final MethodHandle CLEAR_WAND = downcall("ClearMagickWand",
+                FunctionDescriptor.ofVoid(ValueLayout.ADDRESS));
+        static final MethodHandle READ_IMAGE_BLOB = downcall("MagickReadImageBlob",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG));
+        static final MethodHandle PING_IMAGE_BLOB = downcall("MagickPingImageBlob",
                 FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG));
-        setImageFormat = downcall("MagickSetImageFormat",
+        static final MethodHandle SET_IMAGE_FORMAT = downcall("MagickSetImageFormat",
                 FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.ADDRESS));
-        getImageBlob = downcall("MagickGetImageBlob",
-                FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS));
-        relinquishMemory = downcall("MagickRelinquishMemory",
-                FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS));
-        getException = downcall("MagickGetException",
+        static final MethodHandle SET_FILENAME = downcall("MagickSetFilename",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.ADDRESS));
+        static final MethodHandle GET_IMAGE_BLOB = downcall("MagickGetImageBlob",
                 FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS));
-        resetIterator = downcall("MagickResetIterator",
+        static final MethodHandle RELINQUISH_MEMORY = downcall("MagickRelinquishMemory",
                 FunctionDescriptor.ofVoid(ValueLayout.ADDRESS));
-        queryFormats = downcall("MagickQueryFormats",
+        static final MethodHandle GET_EXCEPTION = downcall("MagickGetException",
                 FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS));
-        getNumberImages = downcall("MagickGetNumberImages",
-                FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.ADDRESS));
-        getImageWidth = downcall("MagickGetImageWidth",
-                FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.ADDRESS));
-        getImageHeight = downcall("MagickGetImageHeight",
+        static final MethodHandle RESET_ITERATOR = downcall("MagickResetIterator",
+                FunctionDescriptor.ofVoid(ValueLayout.ADDRESS));
+        static final MethodHandle GET_NUMBER_IMAGES = downcall("MagickGetNumberImages",
                 FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.ADDRESS));
-        getImageDepth = downcall("MagickGetImageDepth",
+        static final MethodHandle GET_IMAGE_WIDTH = downcall("MagickGetImageWidth",
                 FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.ADDRESS));
-        getImageColorspace = downcall("MagickGetImageColorspace",
+        static final MethodHandle GET_IMAGE_HEIGHT = downcall("MagickGetImageHeight",
                 FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.ADDRESS));
-        getImageAlphaChannel = downcall("MagickGetImageAlphaChannel",
+        static final MethodHandle GET_IMAGE_DEPTH = downcall("MagickGetImageDepth",
                 FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.ADDRESS));
-        setIteratorIndex = downcall("MagickSetIteratorIndex",
+        static final MethodHandle GET_IMAGE_COLORSPACE = downcall("MagickGetImageColorspace",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+        static final MethodHandle GET_IMAGE_ALPHA_CHANNEL = downcall("MagickGetImageAlphaChannel",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+        static final MethodHandle GET_IMAGE_RESOLUTION = downcall("MagickGetImageResolution",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS));
+        static final MethodHandle GET_IMAGE_UNITS = downcall("MagickGetImageUnits",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+        static final MethodHandle GET_IMAGE_ORIENTATION = downcall("MagickGetImageOrientation",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+        static final MethodHandle SET_IMAGE_ALPHA_CHANNEL = downcall("MagickSetImageAlphaChannel",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+        static final MethodHandle SET_IMAGE_DEPTH = downcall("MagickSetImageDepth",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG));
+        static final MethodHandle SET_ITERATOR_INDEX = downcall("MagickSetIteratorIndex",
                 FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG));
-        exportImagePixels = downcall("MagickExportImagePixels",
+        static final MethodHandle EXPORT_IMAGE_PIXELS = downcall("MagickExportImagePixels",
                 FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS,
                         ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG,
                         ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG,
                         ValueLayout.ADDRESS, ValueLayout.JAVA_INT,
-                        ValueLayout.ADDRESS));
-        importImagePixels = downcall("MagickImportImagePixels",
+                        ValueLayout.ADDRESS),
+                // pixels are passed as heap segments of the Java arrays
+                Linker.Option.critical(true));
+        static final MethodHandle IMPORT_IMAGE_PIXELS = downcall("MagickImportImagePixels",
                 FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS,
                         ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG,
                         ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG,
                         ValueLayout.ADDRESS, ValueLayout.JAVA_INT,
-                        ValueLayout.ADDRESS));
-        newImage = downcall("MagickNewImage",
+                        ValueLayout.ADDRESS),
+                // pixels are passed as heap segments of the Java arrays
+                Linker.Option.critical(true));
+        static final MethodHandle NEW_IMAGE = downcall("MagickNewImage",
                 FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS,
                         ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG,
                         ValueLayout.ADDRESS));
-        newPixelWand = downcall("NewPixelWand",
+        static final MethodHandle NEW_PIXEL_WAND = downcall("NewPixelWand",
                 FunctionDescriptor.of(ValueLayout.ADDRESS));
-        destroyPixelWand = downcall("DestroyPixelWand",
+        static final MethodHandle DESTROY_PIXEL_WAND = downcall("DestroyPixelWand",
+                FunctionDescriptor.ofVoid(ValueLayout.ADDRESS));
+        static final MethodHandle NEW_WAND_FROM_IMAGE = downcall("NewMagickWandFromImage",
+                FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS));
+        static final MethodHandle GET_IMAGE_REGION = downcall("MagickGetImageRegion",
+                FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS,
+                        ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG,
+                        ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG));
+        static final MethodHandle EXTENT_IMAGE = downcall("MagickExtentImage",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS,
+                        ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG,
+                        ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG));
+        static final MethodHandle SAMPLE_IMAGE = downcall("MagickSampleImage",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS,
+                        ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG));
+        static final MethodHandle SCALE_IMAGE = downcall("MagickScaleImage",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS,
+                        ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG));
+        static final MethodHandle SET_OPTION = downcall("MagickSetOption",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS));
+        static final MethodHandle SET_IMAGE_ARTIFACT = downcall("MagickSetImageArtifact",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS));
+        static final MethodHandle GET_IMAGE_PROPERTY = downcall("MagickGetImageProperty",
+                FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS));
+        static final MethodHandle GET_IMAGE_FORMAT = downcall("MagickGetImageFormat",
                 FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS));
+        static final MethodHandle ADD_IMAGE = downcall("MagickAddImage",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.ADDRESS));
+        static final MethodHandle GET_IMAGE_MAGICK = downcall("GetImageMagick",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG, ValueLayout.ADDRESS));
+        static final MethodHandle ACQUIRE_EXCEPTION_INFO = findOptional("AcquireExceptionInfo",
+                FunctionDescriptor.of(ValueLayout.ADDRESS)).orElse(null);
+        static final MethodHandle DESTROY_EXCEPTION_INFO = findOptional("DestroyExceptionInfo",
+                FunctionDescriptor.ofVoid(ValueLayout.ADDRESS)).orElse(null);
 
-        // Initialize the MagickWand environment if available
-        try {
-            wandGenesis.invoke();
-        } catch (Throwable ignored) {
+        static {
+            MethodHandle wandGenesis = downcall("MagickWandGenesis", FunctionDescriptor.ofVoid());
+            // Initialize the MagickWand environment if available
+            try {
+                wandGenesis.invokeExact();
+            } catch (Throwable ignored) {
+            }
+        }
+
+        private Bindings() {
+        }
+
+        /** Triggers the class initialization. */
+        static void initialize() {
+        }
+
+        private static SymbolLookup resolveLookup() {
+            // Try library lookups by name; fallback to default process symbols
+            for (String lib : LIB_NAMES) {
+                try {
+                    return SymbolLookup.libraryLookup(lib, Arena.global());
+                } catch (Throwable ignored) {
+                }
+            }
+            return LINKER.defaultLookup();
+        }
+
+        static MethodHandle downcall(String symbol, FunctionDescriptor fd, Linker.Option... options) {
+            return LOOKUP.find(symbol)
+                    .map(addr -> LINKER.downcallHandle(addr, fd, options))
+                    .orElseThrow(() -> new UnsatisfiedLinkError("Missing symbol: " + symbol));
+        }
+
+        static Optional<MethodHandle> findOptional(String symbol, FunctionDescriptor fd) {
+            return LOOKUP.find(symbol).map(addr -> LINKER.downcallHandle(addr, fd));
+        }
+    }
+
+    /** Handles of the custom stream functions, bound on the first stream read.
+     * Optional handles are null if not available (ImageMagick 6).
+     * */
+    private static final class StreamBindings {
+        static final MethodHandle ACQUIRE_IMAGE_INFO = Bindings.findOptional("AcquireImageInfo",
+                FunctionDescriptor.of(ValueLayout.ADDRESS)).orElse(null);
+        static final MethodHandle DESTROY_IMAGE_INFO = Bindings.findOptional("DestroyImageInfo",
+                FunctionDescriptor.ofVoid(ValueLayout.ADDRESS)).orElse(null);
+        static final MethodHandle DESTROY_IMAGE_LIST = Bindings.findOptional("DestroyImageList",
+                FunctionDescriptor.ofVoid(ValueLayout.ADDRESS)).orElse(null);
+        static final MethodHandle ACQUIRE_CUSTOM_STREAM_INFO = Bindings.findOptional("AcquireCustomStreamInfo",
+                FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS)).orElse(null);
+        static final MethodHandle DESTROY_CUSTOM_STREAM_INFO = Bindings.findOptional("DestroyCustomStreamInfo",
+                FunctionDescriptor.ofVoid(ValueLayout.ADDRESS)).orElse(null);
+        static final MethodHandle SET_CUSTOM_STREAM_READER = Bindings.findOptional("SetCustomStreamReader",
+                FunctionDescriptor.ofVoid(ValueLayout.ADDRESS, ValueLayout.ADDRESS)).orElse(null);
+        static final MethodHandle SET_CUSTOM_STREAM_SEEKER = Bindings.findOptional("SetCustomStreamSeeker",
+                FunctionDescriptor.ofVoid(ValueLayout.ADDRESS, ValueLayout.ADDRESS)).orElse(null);
+        static final MethodHandle SET_CUSTOM_STREAM_TELLER = Bindings.findOptional("SetCustomStreamTeller",
+                FunctionDescriptor.ofVoid(ValueLayout.ADDRESS, ValueLayout.ADDRESS)).orElse(null);
+        static final MethodHandle SET_IMAGE_INFO_CUSTOM_STREAM = Bindings.findOptional("SetImageInfoCustomStream",
+                FunctionDescriptor.ofVoid(ValueLayout.ADDRESS, ValueLayout.ADDRESS)).orElse(null);
+        static final MethodHandle CUSTOM_STREAM_TO_IMAGE = Bindings.findOptional("CustomStreamToImage",
+                FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS)).orElse(null);
+        static final MethodHandle PING_IMAGE = Bindings.findOptional("PingImage",
+                FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS)).orElse(null);
+
+        private StreamBindings() {
         }
     }
 
-    static NativeMagick INSTANCE;
-    synchronized static NativeMagick instance() {
-        if (INSTANCE == null) {
-            INSTANCE = new NativeMagick();
+    /** Handles of the format registry functions, bound on the first format query.
+     * Optional handles are null if not available (ImageMagick 6).
+     * */
+    private static final class FormatBindings {
+        static final MethodHandle QUERY_FORMATS = Bindings.downcall("MagickQueryFormats",
+                FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS));
+        static final MethodHandle GET_MAGICK_INFO = Bindings.findOptional("GetMagickInfo",
+                FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS)).orElse(null);
+        static final MethodHandle GET_MAGICK_ADJOIN = Bindings.findOptional("GetMagickAdjoin",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS)).orElse(null);
+
+        private FormatBindings() {
         }
-        return INSTANCE;
     }
 
-    private SymbolLookup resolveLookup() {
-        // Try library lookups by name; fallback to default process symbols
-        for (String lib : LIB_NAMES) {
-            try {
-                return SymbolLookup.libraryLookup(lib, Arena.global());
-            } catch (Throwable ignored) {
+    /** Handles of the encoder settings and of multi-image encoding, bound on first use. */
+    private static final class EncoderBindings {
+        static final MethodHandle GET_IMAGES_BLOB = Bindings.downcall("MagickGetImagesBlob",
+                FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.ADDRESS));
+        static final MethodHandle SET_COMPRESSION = Bindings.downcall("MagickSetCompression",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+        static final MethodHandle SET_IMAGE_COMPRESSION = Bindings.downcall("MagickSetImageCompression",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+        static final MethodHandle SET_COMPRESSION_QUALITY = Bindings.downcall("MagickSetCompressionQuality",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG));
+        static final MethodHandle SET_IMAGE_COMPRESSION_QUALITY = Bindings.downcall("MagickSetImageCompressionQuality",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG));
+        static final MethodHandle SET_INTERLACE_SCHEME = Bindings.downcall("MagickSetInterlaceScheme",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+        static final MethodHandle SET_IMAGE_INTERLACE_SCHEME = Bindings.downcall("MagickSetImageInterlaceScheme",
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+
+        private EncoderBindings() {
+        }
+    }
+
+    /** Whether the library supports reading from custom streams.
+     * Custom streams were introduced with ImageMagick 7.
+     * @see MagickWand#readStream(ImageInputStream)
+     * @see MagickWand#pingStream(ImageInputStream)
+     * */
+    boolean supportsCustomStreams() {
+        return Bindings.ACQUIRE_EXCEPTION_INFO != null
+                && Bindings.DESTROY_EXCEPTION_INFO != null
+                && StreamBindings.ACQUIRE_IMAGE_INFO != null
+                && StreamBindings.DESTROY_IMAGE_INFO != null
+                && StreamBindings.DESTROY_IMAGE_LIST != null
+                && StreamBindings.ACQUIRE_CUSTOM_STREAM_INFO != null
+                && StreamBindings.DESTROY_CUSTOM_STREAM_INFO != null
+                && StreamBindings.SET_CUSTOM_STREAM_READER != null
+                && StreamBindings.SET_CUSTOM_STREAM_SEEKER != null
+                && StreamBindings.SET_CUSTOM_STREAM_TELLER != null
+                && StreamBindings.SET_IMAGE_INFO_CUSTOM_STREAM != null
+                && StreamBindings.CUSTOM_STREAM_TO_IMAGE != null
+                && StreamBindings.PING_IMAGE != null;
+    }
+
+    /** Takes an idle wand from the pool or creates a new one. */
+    private MemorySegment acquireWand() throws MagickException {
+        MemorySegment wand = idleWands.pollFirst();
+        if (wand != null) {
+            idleWandCount.decrementAndGet();
+            return wand;
+        }
+        try {
+            wand = (MemorySegment) Bindings.NEW_WAND.invokeExact();
+        } catch (Throwable e) {
+            throw new MagickException(e);
+        }
+        if (wand == null || wand.equals(MemorySegment.NULL)) {
+            throw new MagickException("NewMagickWand failed");
+        }
+        return wand;
+    }
+
+    /** Clears a wand and puts it back into the pool, or destroys it if the pool is full. */
+    private void releaseWand(MemorySegment wand) {
+        try {
+            Bindings.CLEAR_WAND.invokeExact(wand);
+            if (idleWandCount.incrementAndGet() <= wandPoolSize) {
+                idleWands.offerFirst(wand);
+            } else {
+                idleWandCount.decrementAndGet();
+                Bindings.DESTROY_WAND.invokeExact(wand);
             }
+        } catch (Throwable ignored) {
         }
-        return linker.defaultLookup();
     }
 
-    private MethodHandle downcall(String symbol, FunctionDescriptor fd) {
-        return lookup.find(symbol)
-                .map(addr -> linker.downcallHandle(addr, fd))
-                .orElseThrow(() -> new UnsatisfiedLinkError("Missing symbol: " + symbol));
+    /** Releases a wand once, on close or when its {@link MagickWand} becomes unreachable.
+     * Holds no reference to the {@link MagickWand} so it does not keep it reachable.
+     * */
+    private record WandRelease(NativeMagick magick, MemorySegment wand) implements Runnable {
+        @Override
+        public void run() {
+            magick.releaseWand(wand);
+        }
     }
 
-    private Optional<MethodHandle> findOptional(String symbol, FunctionDescriptor fd) {
-        return lookup.find(symbol).map(addr -> linker.downcallHandle(addr, fd));
+    /** Destroys the idle wands of a pool, on close or when its {@link NativeMagick} becomes unreachable.
+     * Holds no reference to the {@link NativeMagick} so it does not keep it reachable.
+     * */
+    private record IdleWandsRelease(Deque<MemorySegment> idleWands, AtomicInteger idleWandCount) implements Runnable {
+        @Override
+        public void run() {
+            for (MemorySegment wand = idleWands.pollFirst(); wand != null; wand = idleWands.pollFirst()) {
+                idleWandCount.decrementAndGet();
+                try {
+                    Bindings.DESTROY_WAND.invokeExact(wand);
+                } catch (Throwable ignored) {
+                }
+            }
+        }
     }
 
+    /** Destroys the idle wands of the pool.
+     * The MagickWand environment is shared by all instances and stays initialized.
+     * Wands that are closed later are pooled again.
+     * */
     @Override
     public void close() {
-        try {
-            wandTerminus.invoke();
-        } catch (Throwable t) {
-            // ignore
-        }
+        idleWandsRelease.run();
     }
 
     /** ImageMagick wand or image context. */
@@ -169,15 +423,20 @@ final class NativeMagick implements AutoCloseable {
         /** A wand is an image context. */
         private final MemorySegment wand;
 
-        /** Creates a new empty image context. */
+        /** Returns the wand to the pool exactly once. */
+        private final Cleaner.Cleanable release;
+
+        /** Creates a new empty image context, reusing a pooled wand if available. */
         MagickWand() throws MagickException {
-            try {
-                this.wand = (MemorySegment) newWand.invoke();
-                if (wand == null || wand.equals(MemorySegment.NULL))
-                    throw new MagickException("NewMagickWand failed");
-            } catch (Throwable e) {
-                throw new MagickException(e);
-            }
+            this(acquireWand());
+        }
+
+        /** Takes ownership of a wand returned by ImageMagick. */
+        private MagickWand(MemorySegment wand) throws MagickException {
+            if (wand == null || wand.equals(MemorySegment.NULL))
+                throw new MagickException("Wand is null");
+            this.wand = wand;
+            this.release = CLEANER.register(this, new WandRelease(NativeMagick.this, wand));
         }
 
         /** Calls a function with a FFM memory arena. */
@@ -198,34 +457,130 @@ final class NativeMagick implements AutoCloseable {
             callWithArena(arena -> { consumer.consume(arena); return null; });
         }
 
-        /** Disposes the wand. */
-        private void destroy(MemorySegment wand) {
-            try {
-                destroyWand.invoke(wand);
-            } catch (Throwable ignored) {
-            }
-        }
-
         /** Reads the blob into the wand. */
         void readBlob(byte[] inputBlob) throws MagickException {
             Objects.requireNonNull(inputBlob, "inputBlob needs to be non-null");
             withArena(arena -> {
                 MemorySegment inBuf = arena.allocateFrom(ValueLayout.JAVA_BYTE, inputBlob);
-                int ok = invokeWithExceptionHandling(Integer.class,
-                        () -> readImageBlob.invoke(wand, inBuf, (long) inputBlob.length));
+                int ok = (int) Bindings.READ_IMAGE_BLOB.invokeExact(wand, inBuf, (long) inputBlob.length);
                 if (ok == MagickFalse) {
                     throw new MagickException("MagickReadImageBlob failed");
                 }
             });
         }
 
+        /** Reads the blob from native memory into the wand without copying it. */
+        void readBlob(MemorySegment inputBlob) throws MagickException {
+            Objects.requireNonNull(inputBlob, "inputBlob needs to be non-null");
+            int ok;
+            try {
+                ok = (int) Bindings.READ_IMAGE_BLOB.invokeExact(wand, inputBlob, inputBlob.byteSize());
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            if (ok == MagickFalse) {
+                throw new MagickException("MagickReadImageBlob failed");
+            }
+        }
+
+        /** Pings the blob from native memory into the wand.
+         * Pinging only reads the image attributes like the dimensions,
+         * no pixels are decoded.
+         * */
+        void pingBlob(MemorySegment inputBlob) throws MagickException {
+            Objects.requireNonNull(inputBlob, "inputBlob needs to be non-null");
+            int ok;
+            try {
+                ok = (int) Bindings.PING_IMAGE_BLOB.invokeExact(wand, inputBlob, inputBlob.byteSize());
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            if (ok == MagickFalse) {
+                throw new MagickException("MagickPingImageBlob failed");
+            }
+        }
+
+        /** Reads the images from the stream into the wand, starting at the current
+         * stream position.
+         * ImageMagick pulls the data through a custom stream, so the encoded
+         * image is never copied as a whole.
+         * @see #supportsCustomStreams()
+         * */
+        void readStream(ImageInputStream stream) throws MagickException {
+            loadStream(stream, StreamBindings.CUSTOM_STREAM_TO_IMAGE);
+        }
+
+        /** Pings the images from the stream into the wand, starting at the current
+         * stream position.
+         * Pinging only reads the image attributes like the dimensions,
+         * no pixels are decoded.
+         * @see #supportsCustomStreams()
+         * */
+        void pingStream(ImageInputStream stream) throws MagickException {
+            loadStream(stream, StreamBindings.PING_IMAGE);
+        }
+
+        /** Loads the images from the stream into the wand using a custom stream.
+         * @param loader {@code CustomStreamToImage} or {@code PingImage}.
+         * */
+        private void loadStream(ImageInputStream stream, MethodHandle loader) throws MagickException {
+            Objects.requireNonNull(stream, "stream needs to be non-null");
+            if (!supportsCustomStreams()) {
+                throw new MagickException("Custom streams are not supported by this ImageMagick version");
+            }
+            ImageInputStreamAdapter adapter;
+            try {
+                adapter = new ImageInputStreamAdapter(stream);
+            } catch (IOException e) {
+                throw new MagickException(e);
+            }
+            withArena(arena -> {
+                MemorySegment reader = Bindings.LINKER.upcallStub(
+                        ImageInputStreamAdapter.READ.bindTo(adapter), CUSTOM_STREAM_READER, arena);
+                MemorySegment seeker = Bindings.LINKER.upcallStub(
+                        ImageInputStreamAdapter.SEEK.bindTo(adapter), CUSTOM_STREAM_SEEKER, arena);
+                MemorySegment teller = Bindings.LINKER.upcallStub(
+                        ImageInputStreamAdapter.TELL.bindTo(adapter), CUSTOM_STREAM_TELLER, arena);
+
+                MemorySegment exception = (MemorySegment) Bindings.ACQUIRE_EXCEPTION_INFO.invokeExact();
+                MemorySegment customStream = (MemorySegment) StreamBindings.ACQUIRE_CUSTOM_STREAM_INFO.invokeExact(exception);
+                MemorySegment imageInfo = (MemorySegment) StreamBindings.ACQUIRE_IMAGE_INFO.invokeExact();
+                try {
+                    StreamBindings.SET_CUSTOM_STREAM_READER.invokeExact(customStream, reader);
+                    StreamBindings.SET_CUSTOM_STREAM_SEEKER.invokeExact(customStream, seeker);
+                    StreamBindings.SET_CUSTOM_STREAM_TELLER.invokeExact(customStream, teller);
+                    StreamBindings.SET_IMAGE_INFO_CUSTOM_STREAM.invokeExact(imageInfo, customStream);
+
+                    MemorySegment images = (MemorySegment) loader.invokeExact(imageInfo, exception);
+                    if (images == null || images.equals(MemorySegment.NULL)) {
+                        if (adapter.getFailure() != null) {
+                            throw new MagickException("Reading from stream failed", adapter.getFailure());
+                        }
+                        throw new MagickException("Reading from custom stream failed");
+                    }
+                    // the wand gets a reference-counted clone of the image list
+                    MemorySegment imagesWand = (MemorySegment) Bindings.NEW_WAND_FROM_IMAGE.invokeExact(images);
+                    StreamBindings.DESTROY_IMAGE_LIST.invokeExact(images);
+                    try {
+                        checkStatus((int) Bindings.ADD_IMAGE.invokeExact(wand, imagesWand));
+                    } finally {
+                        releaseWand(imagesWand);
+                    }
+                } finally {
+                    StreamBindings.DESTROY_IMAGE_INFO.invokeExact(imageInfo);
+                    StreamBindings.DESTROY_CUSTOM_STREAM_INFO.invokeExact(customStream);
+                    Bindings.DESTROY_EXCEPTION_INFO.invokeExact(exception);
+                }
+            });
+        }
+
         /** Gets the current image file in the specified format.
          * @see #setImageFormat(String)
          * */
         byte[] getImageBlob() throws MagickException {
             return callWithArena(arena -> {
                 MemorySegment sizePtr = arena.allocate(ValueLayout.JAVA_LONG);
-                MemorySegment blobPtr = (MemorySegment) getImageBlob.invoke(wand, sizePtr);
+                MemorySegment blobPtr = (MemorySegment) Bindings.GET_IMAGE_BLOB.invokeExact(wand, sizePtr);
                 long len = sizePtr.get(ValueLayout.JAVA_LONG, 0);
                 if (blobPtr == null || blobPtr.equals(MemorySegment.NULL) || len <= 0) {
                     throw new MagickException("MagickGetImageBlob returned null/empty");
@@ -237,216 +592,585 @@ final class NativeMagick implements AutoCloseable {
                 byte[] out = new byte[(int) len];
                 MemorySegment.ofArray(out).copyFrom(blobPtr.reinterpret(len).asSlice(0, len));
 
-                relinquishMemory.invoke(blobPtr);
+                Bindings.RELINQUISH_MEMORY.invokeExact(blobPtr);
 
                 return out;
             });
         }
 
+        /** Writes the current image file in the specified format to the stream.
+         * The native blob is transferred in fixed-size chunks, so no heap copy
+         * of the whole file is created and the size is not limited to 2 GB.
+         * @see #setImageFormat(String)
+         * */
+        void writeImageBlob(ImageOutputStream output) throws MagickException {
+            writeBlob(Bindings.GET_IMAGE_BLOB, output);
+        }
+
+        /** Writes all images of the wand as one file in the format of the first image to the stream.
+         * The file is encoded completely in native memory before it is transferred.
+         * @see #writeImageBlob(ImageOutputStream)
+         * */
+        void writeImagesBlob(ImageOutputStream output) throws MagickException {
+            writeBlob(EncoderBindings.GET_IMAGES_BLOB, output);
+        }
+
+        /** Transfers a blob of {@code MagickGetImageBlob} or {@code MagickGetImagesBlob} in chunks. */
+        private void writeBlob(MethodHandle blobGetter, ImageOutputStream output) throws MagickException {
+            Objects.requireNonNull(output, "output needs to be non-null");
+            withArena(arena -> {
+                MemorySegment sizePtr = arena.allocate(ValueLayout.JAVA_LONG);
+                MemorySegment blobPtr = (MemorySegment) blobGetter.invokeExact(wand, sizePtr);
+                long len = sizePtr.get(ValueLayout.JAVA_LONG, 0);
+                if (blobPtr == null || blobPtr.equals(MemorySegment.NULL) || len <= 0) {
+                    throw new MagickException("MagickGetImageBlob returned null/empty");
+                }
+
+                try {
+                    MemorySegment blob = blobPtr.reinterpret(len);
+                    byte[] buffer = new byte[(int) Math.min(BLOB_CHUNK_SIZE, len)];
+                    for (long offset = 0; offset < len; offset += buffer.length) {
+                        int chunk = (int) Math.min(buffer.length, len - offset);
+                        MemorySegment.copy(blob, ValueLayout.JAVA_BYTE, offset, buffer, 0, chunk);
+                        output.write(buffer, 0, chunk);
+                    }
+                } finally {
+                    Bindings.RELINQUISH_MEMORY.invokeExact(blobPtr);
+                }
+            });
+        }
+
         /** Resets the iterator. */
         void resetIterator() throws MagickException {
-            invokeWithExceptionHandling(Void.class, () -> resetIterator.invoke(wand));
+            try {
+                Bindings.RESET_ITERATOR.invokeExact(wand);
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
         }
 
         /** Sets the target image format for conversion. */
         void setImageFormat(String outFormat) throws MagickException {
             Objects.requireNonNull(outFormat, "outFormat name must be non-null");
-            withArena(arena -> {
-                MemorySegment fmt = arena.allocateFrom(outFormat);
-                invokeWithMagickBool(
-                    () -> setImageFormat.invoke(wand, fmt));
-            });
+            int ok;
+            try (Arena arena = Arena.ofConfined()) {
+                ok = (int) Bindings.SET_IMAGE_FORMAT.invokeExact(wand, arena.allocateFrom(outFormat));
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            checkStatus(ok);
+        }
+
+        /** Sets the file name used for reading.
+         * A subimage specification like {@code image[2]} restricts
+         * reading to the given frames, also for blobs.
+         * */
+        void setFilename(String filename) throws MagickException {
+            Objects.requireNonNull(filename, "filename must be non-null");
+            int ok;
+            try (Arena arena = Arena.ofConfined()) {
+                ok = (int) Bindings.SET_FILENAME.invokeExact(wand, arena.allocateFrom(filename));
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            checkStatus(ok);
         }
 
         /** Gets the number of images. */
         long getNumberImages() throws MagickException {
-            return invokeWithExceptionHandling(Long.class,
-                    () -> getNumberImages.invoke(wand));
+            try {
+                return (long) Bindings.GET_NUMBER_IMAGES.invokeExact(wand);
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
         }
 
         /** Gets the image width. */
         long getImageWidth() throws MagickException {
-            return invokeWithExceptionHandling(Long.class,
-                    () -> getImageWidth.invoke(wand));
+            try {
+                return (long) Bindings.GET_IMAGE_WIDTH.invokeExact(wand);
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
         }
 
         /** Gets the image height. */
         long getImageHeight() throws MagickException {
-            return invokeWithExceptionHandling(Long.class,
-                    () -> getImageHeight.invoke(wand));
+            try {
+                return (long) Bindings.GET_IMAGE_HEIGHT.invokeExact(wand);
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
         }
 
         /** Gets the image depth in bits per pixel. */
         int getImageDepth() throws MagickException {
-            return invokeWithExceptionHandling(Long.class,
-                    () -> getImageDepth.invoke(wand)).intValue();
+            try {
+                return (int) (long) Bindings.GET_IMAGE_DEPTH.invokeExact(wand);
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
         }
 
         ColorspaceType getImageColorspace() throws MagickException {
-            return invokeWithExceptionHandling(ColorspaceType.class,
-                    () -> {
-                        long colorSpaceValue = (long) getImageColorspace.invoke(wand);
-                        ColorspaceType[] values = ColorspaceType.values();
-                        if (colorSpaceValue >= 0 && colorSpaceValue < values.length) {
-                            return values[(int) colorSpaceValue];
-                        } else {
-                            throw new MagickException("Could not map color space value " + colorSpaceValue);
-                        }
-            });
+            int colorSpaceValue;
+            try {
+                colorSpaceValue = (int) Bindings.GET_IMAGE_COLORSPACE.invokeExact(wand);
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            ColorspaceType[] values = ColorspaceType.values();
+            if (colorSpaceValue >= 0 && colorSpaceValue < values.length) {
+                return values[colorSpaceValue];
+            } else {
+                throw new MagickException("Could not map color space value " + colorSpaceValue);
+            }
         }
 
         boolean getImageAlphaChannel() throws MagickException {
-            return invokeWithExceptionHandling(Boolean.class,
-                    () -> {
-                        long alphaChannel = (long) getImageAlphaChannel.invoke(wand);
-                        return MagickTrue == alphaChannel;
-                    });
+            try {
+                return (int) Bindings.GET_IMAGE_ALPHA_CHANNEL.invokeExact(wand) == MagickTrue;
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
         }
 
-        /** Sets the image iterator index. */
-        void setIteratorIndex(long index) throws MagickException {
-            invokeWithMagickBool(
-                    () -> setIteratorIndex.invoke(wand, index));
+        /** Gets the horizontal and vertical resolution of the current image
+         * in the units of {@link #getImageUnits()}.
+         * @return an array with the x and the y resolution.
+         * */
+        double[] getImageResolution() throws MagickException {
+            int ok;
+            double[] resolution = new double[2];
+            try (Arena arena = Arena.ofConfined()) {
+                MemorySegment xy = arena.allocate(ValueLayout.JAVA_DOUBLE, 2);
+                ok = (int) Bindings.GET_IMAGE_RESOLUTION.invokeExact(wand,
+                        xy, xy.asSlice(ValueLayout.JAVA_DOUBLE.byteSize()));
+                resolution[0] = xy.getAtIndex(ValueLayout.JAVA_DOUBLE, 0);
+                resolution[1] = xy.getAtIndex(ValueLayout.JAVA_DOUBLE, 1);
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            checkStatus(ok);
+            return resolution;
+        }
+
+        /** Gets the units of the resolution of the current image. */
+        ResolutionType getImageUnits() throws MagickException {
+            int units;
+            try {
+                units = (int) Bindings.GET_IMAGE_UNITS.invokeExact(wand);
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            ResolutionType[] values = ResolutionType.values();
+            return units >= 0 && units < values.length ? values[units] : ResolutionType.UndefinedResolution;
+        }
+
+        /** Gets the orientation of the current image, as read from EXIF or the coder. */
+        OrientationType getImageOrientation() throws MagickException {
+            int orientation;
+            try {
+                orientation = (int) Bindings.GET_IMAGE_ORIENTATION.invokeExact(wand);
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            OrientationType[] values = OrientationType.values();
+            return orientation >= 0 && orientation < values.length
+                    ? values[orientation] : OrientationType.UndefinedOrientation;
+        }
+
+        /** Sets the depth of the current image in bits per component,
+         * the depth encoders write if the format allows it. */
+        void setImageDepth(long depth) throws MagickException {
+            int ok;
+            try {
+                ok = (int) Bindings.SET_IMAGE_DEPTH.invokeExact(wand, depth);
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            checkStatus(ok);
+        }
+
+        /** Changes the alpha channel of the current image,
+         * for example associating it to get premultiplied color channels. */
+        void setImageAlphaChannel(AlphaChannelOption option) throws MagickException {
+            int ok;
+            try {
+                ok = (int) Bindings.SET_IMAGE_ALPHA_CHANNEL.invokeExact(wand, option.ordinal());
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            checkStatus(ok);
+        }
+
+        /** Extracts a region of the current image into a new wand. */
+        MagickWand getImageRegion(long x, long y, long columns, long rows) throws MagickException {
+            MemorySegment region;
+            try {
+                region = (MemorySegment) Bindings.GET_IMAGE_REGION.invokeExact(wand, columns, rows, x, y);
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            if (region == null || region.equals(MemorySegment.NULL)) {
+                checkMagickException();
+                throw new MagickException("MagickGetImageRegion failed");
+            }
+            return new MagickWand(region);
+        }
+
+        /** Sets the size of the current image, keeping the pixels at the top left.
+         * Added pixels get the background color.
+         * */
+        void extentImage(long columns, long rows) throws MagickException {
+            int ok;
+            try {
+                ok = (int) Bindings.EXTENT_IMAGE.invokeExact(wand, columns, rows, 0L, 0L);
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            checkStatus(ok);
         }
 
-        byte[] exportImagePixelsAsGrayBytes() throws MagickException {
-            return (byte[]) exportImagePixels("I", 1, StorageType.CharPixel);
+        /** Scales the current image to the given size by pixel sampling.
+         * The image is divided into cells of the same size and the top left pixel
+         * of each cell is picked. This is ImageIO subsampling only if the image size
+         * is a multiple of the sampled size.
+         * */
+        void sampleImage(long columns, long rows) throws MagickException {
+            // offset in percent of a cell, must stay above 0 because of rounding
+            setImageArtifact("sample:offset", "0.1");
+            int ok;
+            try {
+                ok = (int) Bindings.SAMPLE_IMAGE.invokeExact(wand, columns, rows);
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            checkStatus(ok);
         }
 
-        short[] exportImagePixelsAsGrayShorts() throws MagickException {
-            return (short[]) exportImagePixels("I", 1, StorageType.ShortPixel);
+        /** Scales the current image to the given size. */
+        void scaleImage(long columns, long rows) throws MagickException {
+            int ok;
+            try {
+                ok = (int) Bindings.SCALE_IMAGE.invokeExact(wand, columns, rows);
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            checkStatus(ok);
         }
 
-        byte[] exportImagePixelsAsRGBBytes() throws MagickException {
-            return (byte[]) exportImagePixels("RGB", 3, StorageType.CharPixel);
+        /** Sets a wand option, for example a coder setting like {@code jpeg:size}
+         * that is used when reading. */
+        void setOption(String key, String value) throws MagickException {
+            Objects.requireNonNull(key, "key must be non-null");
+            Objects.requireNonNull(value, "value must be non-null");
+            int ok;
+            try (Arena arena = Arena.ofConfined()) {
+                ok = (int) Bindings.SET_OPTION.invokeExact(wand,
+                        arena.allocateFrom(key), arena.allocateFrom(value));
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            checkStatus(ok);
         }
 
-        byte[] exportImagePixelsAsARGBBytes() throws MagickException {
-            return (byte[]) exportImagePixels("ARGB", 4, StorageType.CharPixel);
+        /** Sets the compression of the wand and the current image for writing.
+         * Coders look at one or the other, so both are set. */
+        void setCompression(CompressionType compressionType) throws MagickException {
+            int wandOk;
+            int imageOk;
+            try {
+                wandOk = (int) EncoderBindings.SET_COMPRESSION.invokeExact(wand, compressionType.ordinal());
+                imageOk = (int) EncoderBindings.SET_IMAGE_COMPRESSION.invokeExact(wand, compressionType.ordinal());
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            checkStatus(wandOk);
+            checkStatus(imageOk);
         }
 
-        short[] exportImagePixelsAsRGBShorts() throws MagickException {
-            return (short[]) exportImagePixels("RGB", 3, StorageType.ShortPixel);
+        /** Sets the compression quality of the wand and the current image for writing.
+         * @param quality the quality from 0 to 100, with format specific meaning.
+         * */
+        void setCompressionQuality(long quality) throws MagickException {
+            int wandOk;
+            int imageOk;
+            try {
+                wandOk = (int) EncoderBindings.SET_COMPRESSION_QUALITY.invokeExact(wand, quality);
+                imageOk = (int) EncoderBindings.SET_IMAGE_COMPRESSION_QUALITY.invokeExact(wand, quality);
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            checkStatus(wandOk);
+            checkStatus(imageOk);
         }
 
-        short[] exportImagePixelsAsARGBShorts() throws MagickException {
-            return (short[]) exportImagePixels("ARGB", 4, StorageType.ShortPixel);
+        /** Sets the interlace scheme of the wand and the current image for writing. */
+        void setInterlaceScheme(InterlaceType interlaceType) throws MagickException {
+            int wandOk;
+            int imageOk;
+            try {
+                wandOk = (int) EncoderBindings.SET_INTERLACE_SCHEME.invokeExact(wand, interlaceType.ordinal());
+                imageOk = (int) EncoderBindings.SET_IMAGE_INTERLACE_SCHEME.invokeExact(wand, interlaceType.ordinal());
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            checkStatus(wandOk);
+            checkStatus(imageOk);
         }
 
-        private Object exportImagePixels(String mapName,
-                                         int wordsPerPixel,
-                                         StorageType wordType) throws MagickException {
-            long width = getImageWidth();
-            long height = getImageHeight();
+        /** Sets an artifact of the current image, a setting for image operations. */
+        void setImageArtifact(String artifact, String value) throws MagickException {
+            Objects.requireNonNull(artifact, "artifact must be non-null");
+            Objects.requireNonNull(value, "value must be non-null");
+            int ok;
+            try (Arena arena = Arena.ofConfined()) {
+                ok = (int) Bindings.SET_IMAGE_ARTIFACT.invokeExact(wand,
+                        arena.allocateFrom(artifact), arena.allocateFrom(value));
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            checkStatus(ok);
+        }
+
+        /** Gets a property of the current image, like a format specific attribute. */
+        Optional<String> getImageProperty(String name) throws MagickException {
+            Objects.requireNonNull(name, "name must be non-null");
             return callWithArena(arena -> {
-                // This string reflects the expected ordering of the pixel array. It can be any combination or order of R = red, G = green, B = blue, A = alpha (0 is transparent), O = alpha (0 is opaque), C = cyan, Y = yellow, M = magenta, K = black, I = intensity (for grayscale), P = pad.
-                MemorySegment map = arena.allocateFrom(mapName);
-                long wordCount =
-                        wordsPerPixel *
-                                width * height;
-                long byteCount = wordType.getElementLayout().byteSize() *
-                        wordCount;
-                MemorySegment pixels = arena.allocate(byteCount);
-                invokeWithMagickBool(
-                        () -> exportImagePixels.invoke(wand,
-                                0, 0,
-                                width, height,
-                                map,
-                                wordType.ordinal(),
-                                pixels
-                        ));
-
-                Pair<Object, MemorySegment> pair = wordType.newArray((int) wordCount);
-                pair.right().copyFrom(pixels.reinterpret(byteCount).asSlice(0, byteCount));
-                return pair.left();
+                MemorySegment nameBuf = arena.allocateFrom(name);
+                MemorySegment value = (MemorySegment) Bindings.GET_IMAGE_PROPERTY.invokeExact(wand, nameBuf);
+                if (value == null || value.equals(MemorySegment.NULL)) {
+                    return Optional.empty();
+                }
+                try {
+                    return Optional.of(value.reinterpret(Long.MAX_VALUE).getString(0, StandardCharsets.UTF_8));
+                } finally {
+                    Bindings.RELINQUISH_MEMORY.invokeExact(value);
+                }
             });
         }
 
-        void newImage(int width, int height) throws MagickException {
-            callWithArena(arena -> {
-                MemorySegment pixelWand = (MemorySegment) newPixelWand.invoke();
-                invokeWithMagickBool(
-                        () -> newImage.invoke(wand,
-                                width, height,
-                                pixelWand
-                        ));
-                destroyPixelWand.invoke(pixelWand);
-                return 0;
+        /** Gets the format of the current image, like {@code TIFF}. */
+        String getImageFormat() throws MagickException {
+            return callWithArena(arena -> {
+                MemorySegment value = (MemorySegment) Bindings.GET_IMAGE_FORMAT.invokeExact(wand);
+                if (value == null || value.equals(MemorySegment.NULL)) {
+                    throw new MagickException("MagickGetImageFormat failed");
+                }
+                try {
+                    return value.reinterpret(Long.MAX_VALUE).getString(0, StandardCharsets.US_ASCII);
+                } finally {
+                    Bindings.RELINQUISH_MEMORY.invokeExact(value);
+                }
             });
         }
 
-        void importImagePixelsAsBytes(byte[] pixels, String mapName, int wordsPerPixel, int width, int height) throws MagickException {
-            importImagePixels(pixels, mapName, wordsPerPixel, width, height, StorageType.CharPixel);
+        /** Sets the image iterator index. */
+        void setIteratorIndex(long index) throws MagickException {
+            int ok;
+            try {
+                ok = (int) Bindings.SET_ITERATOR_INDEX.invokeExact(wand, index);
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            checkStatus(ok);
         }
 
-        void importImagePixelsAsShorts(short[] pixels, String mapName, int wordsPerPixel, int width, int height) throws MagickException {
-            importImagePixels(pixels, mapName, wordsPerPixel, width, height, StorageType.ShortPixel);
+        byte[] exportImagePixelsAsGrayBytes(long x, long y, long columns, long rows) throws MagickException {
+            return (byte[]) exportImagePixels(x, y, columns, rows, "I", 1, StorageType.CharPixel);
         }
 
-        private void importImagePixels(
-                Object pixelsArray,
-                String mapName,
-                int wordsPerPixel,
-                int width,
-                int height,
-                StorageType wordType) throws MagickException {
-            callWithArena(arena -> {
-                // This string reflects the expected ordering of the pixel array. It can be any combination or order of R = red, G = green, B = blue, A = alpha (0 is transparent), O = alpha (0 is opaque), C = cyan, Y = yellow, M = magenta, K = black, I = intensity (for grayscale), P = pad.
-                MemorySegment map = arena.allocateFrom(mapName);
-                long wordCount =
-                        wordsPerPixel *
-                        width * height;
-                long byteCount = wordType.getElementLayout().byteSize() *
-                        wordCount;
-                MemorySegment pixelsInHeap = wordType.toMemorySegment(pixelsArray);
-                MemorySegment pixelsOffHeap = arena.allocate(byteCount);
-                MemorySegment.copy(pixelsInHeap, 0, pixelsOffHeap, 0, byteCount);
-
-                invokeWithMagickBool(
-                        () -> importImagePixels.invoke(wand,
-                                0, 0,
-                                width, height,
-                                map,
-                                wordType.ordinal(),
-                                pixelsOffHeap
-                        ));
-                return 0;
-            });
+        short[] exportImagePixelsAsGrayShorts(long x, long y, long columns, long rows) throws MagickException {
+            return (short[]) exportImagePixels(x, y, columns, rows, "I", 1, StorageType.ShortPixel);
         }
 
-        public void close() {
-            if (wand != null) {
-                destroy(wand);
+        byte[] exportImagePixelsAsRGBBytes(long x, long y, long columns, long rows) throws MagickException {
+            return (byte[]) exportImagePixels(x, y, columns, rows, "RGB", 3, StorageType.CharPixel);
+        }
+
+        byte[] exportImagePixelsAsBGRBytes(long x, long y, long columns, long rows) throws MagickException {
+            return (byte[]) exportImagePixels(x, y, columns, rows, "BGR", 3, StorageType.CharPixel);
+        }
+
+        byte[] exportImagePixelsAsABGRBytes(long x, long y, long columns, long rows) throws MagickException {
+            return (byte[]) exportImagePixels(x, y, columns, rows, "ABGR", 4, StorageType.CharPixel);
+        }
+
+        short[] exportImagePixelsAsRGBShorts(long x, long y, long columns, long rows) throws MagickException {
+            return (short[]) exportImagePixels(x, y, columns, rows, "RGB", 3, StorageType.ShortPixel);
+        }
+
+        short[] exportImagePixelsAsRGBAShorts(long x, long y, long columns, long rows) throws MagickException {
+            return (short[]) exportImagePixels(x, y, columns, rows, "RGBA", 4, StorageType.ShortPixel);
+        }
+
+        float[] exportImagePixelsAsGrayFloats(long x, long y, long columns, long rows) throws MagickException {
+            return (float[]) exportImagePixels(x, y, columns, rows, "I", 1, StorageType.FloatPixel);
+        }
+
+        float[] exportImagePixelsAsRGBFloats(long x, long y, long columns, long rows) throws MagickException {
+            return (float[]) exportImagePixels(x, y, columns, rows, "RGB", 3, StorageType.FloatPixel);
+        }
+
+        float[] exportImagePixelsAsRGBAFloats(long x, long y, long columns, long rows) throws MagickException {
+            return (float[]) exportImagePixels(x, y, columns, rows, "RGBA", 4, StorageType.FloatPixel);
+        }
+
+        /** Exports pixels as packed {@code 0xAARRGGBB} ints, one int per pixel. */
+        int[] exportImagePixelsAsARGBInts(long x, long y, long columns, long rows) throws MagickException {
+            return exportImagePixelsAsInts(x, y, columns, rows, ARGB_INT_MAP);
+        }
+
+        /** Exports pixels as packed {@code 0x00RRGGBB} ints, one int per pixel. */
+        int[] exportImagePixelsAsRGBInts(long x, long y, long columns, long rows) throws MagickException {
+            return exportImagePixelsAsInts(x, y, columns, rows, RGB_INT_MAP);
+        }
+
+        /** Exports four char pixels per pixel directly into the ints of an array. */
+        private int[] exportImagePixelsAsInts(long x, long y, long columns, long rows, String mapName) throws MagickException {
+            long pixelCount = columns * rows;
+            if (pixelCount > Integer.MAX_VALUE) {
+                throw new MagickException("Image too large");
+            }
+            int[] pixels = new int[(int) pixelCount];
+            exportImagePixels(x, y, columns, rows, mapName, StorageType.CharPixel, MemorySegment.ofArray(pixels));
+            return pixels;
+        }
+
+        /** Exports the pixels of a region of the current image.
+         * Only the region is transferred from the pixel cache.
+         * */
+        private Object exportImagePixels(long x,
+                                         long y,
+                                         long columns,
+                                         long rows,
+                                         String mapName,
+                                         int wordsPerPixel,
+                                         StorageType wordType) throws MagickException {
+            long wordCount =
+                    wordsPerPixel *
+                            columns * rows;
+            if (wordCount > Integer.MAX_VALUE) {
+                throw new MagickException("Image too large");
             }
+            Pair<Object, MemorySegment> pair = wordType.newArray((int) wordCount);
+            exportImagePixels(x, y, columns, rows, mapName, wordType, pair.right());
+            return pair.left();
         }
 
-        private void invokeWithMagickBool(SupplierWithException<Object> invocation) throws MagickException {
+        /** Exports the pixels of a region of the current image into the target.
+         * The target may be a heap segment of a Java array, ImageMagick then
+         * writes directly into the array. The garbage collector is
+         * blocked while the pixels are exported.
+         * @param target the segment to write to, large enough for the region.
+         * */
+        void exportImagePixels(long x,
+                               long y,
+                               long columns,
+                               long rows,
+                               String mapName,
+                               StorageType wordType,
+                               MemorySegment target) throws MagickException {
+            long byteCount = wordType.getElementLayout().byteSize() *
+                    mapName.length() * columns * rows;
+            if (target.byteSize() < byteCount) {
+                throw new IllegalArgumentException("Target of " + target.byteSize()
+                        + " bytes is too small for " + byteCount + " bytes");
+            }
+            int ok;
+            try (Arena arena = Arena.ofConfined()) {
+                // This string reflects the expected ordering of the pixel array. It can be any combination or order of R = red, G = green, B = blue, A = alpha (0 is transparent), O = alpha (0 is opaque), C = cyan, Y = yellow, M = magenta, K = black, I = intensity (for grayscale), P = pad.
+                MemorySegment map = arena.allocateFrom(mapName);
+                ok = (int) Bindings.EXPORT_IMAGE_PIXELS.invokeExact(wand,
+                        x, y,
+                        columns, rows,
+                        map,
+                        wordType.ordinal(),
+                        target);
+            } catch (Throwable e) {
+                throw new MagickException(e);
+            }
+            checkStatus(ok);
+        }
+
+        void newImage(int width, int height) throws MagickException {
+            int ok;
             try {
-                int ok = (int) invocation.get();
-                if (ok == MagickFalse) {
-                    checkMagickException();
-                    throw new MagickException("Operation failed");
+                MemorySegment pixelWand = (MemorySegment) Bindings.NEW_PIXEL_WAND.invokeExact();
+                try {
+                    ok = (int) Bindings.NEW_IMAGE.invokeExact(wand,
+                            (long) width, (long) height,
+                            pixelWand);
+                } finally {
+                    Bindings.DESTROY_PIXEL_WAND.invokeExact(pixelWand);
                 }
             } catch (Throwable e) {
                 throw new MagickException(e);
             }
+            checkStatus(ok);
         }
 
-        private <R> R invokeWithExceptionHandling(Class<R> resultClass, SupplierWithException<Object> invocation) throws MagickException {
-            try {
-                return resultClass.cast(invocation.get());
+        /** Imports the pixels of a region of the current image from the source.
+         * The source may be a heap segment of a Java array, ImageMagick then
+         * reads directly from the array. The garbage collector is
+         * blocked while the pixels are imported.
+         * @param source the segment to read from, large enough for the region.
+         * */
+        void importImagePixels(long x,
+                               long y,
+                               long columns,
+                               long rows,
+                               String mapName,
+                               StorageType wordType,
+                               MemorySegment source) throws MagickException {
+            long byteCount = wordType.getElementLayout().byteSize() *
+                    mapName.length() * columns * rows;
+            if (source.byteSize() < byteCount) {
+                throw new IllegalArgumentException("Source of " + source.byteSize()
+                        + " bytes is too small for " + byteCount + " bytes");
+            }
+            int ok;
+            try (Arena arena = Arena.ofConfined()) {
+                // This string reflects the expected ordering of the pixel array. It can be any combination or order of R = red, G = green, B = blue, A = alpha (0 is transparent), O = alpha (0 is opaque), C = cyan, Y = yellow, M = magenta, K = black, I = intensity (for grayscale), P = pad.
+                MemorySegment map = arena.allocateFrom(mapName);
+                ok = (int) Bindings.IMPORT_IMAGE_PIXELS.invokeExact(wand,
+                        x, y,
+                        columns, rows,
+                        map,
+                        wordType.ordinal(),
+                        source);
             } catch (Throwable e) {
                 throw new MagickException(e);
             }
+            checkStatus(ok);
+        }
+
+        /** Returns the wand to the pool of the bindings.
+         * Closing more than once has no effect. Wands that are not closed
+         * are returned when this object becomes unreachable.
+         * */
+        public void close() {
+            release.clean();
+        }
+
+        /** Checks the {@code MagickBooleanType} result of an operation.
+         * @throws MagickException with the exception of the wand if the operation failed.
+         * */
+        private void checkStatus(int ok) throws MagickException {
+            if (ok == MagickFalse) {
+                checkMagickException();
+                throw new MagickException("Operation failed");
+            }
         }
 
         private void checkMagickException() throws MagickException {
             try {
                 withArena(arena -> {
                     MemorySegment severityPtr = arena.allocate(ValueLayout.JAVA_LONG);
-                    MemorySegment exceptionMessage = (MemorySegment) getException.invoke(wand, severityPtr);
+                    MemorySegment exceptionMessage = (MemorySegment) Bindings.GET_EXCEPTION.invokeExact(wand, severityPtr);
                     String exceptString = exceptionMessage.reinterpret(Long.MAX_VALUE).getString(0, StandardCharsets.US_ASCII);
-                    relinquishMemory.invoke(exceptionMessage);
+                    Bindings.RELINQUISH_MEMORY.invokeExact(exceptionMessage);
                     if (exceptString != null && !exceptString.isEmpty()) {
                         throw new MagickException(exceptString);
                     }
@@ -464,9 +1188,9 @@ final class NativeMagick implements AutoCloseable {
                 return callWithArena(arena -> {
                     MemorySegment severityPtr = arena.allocate(ValueLayout.JAVA_LONG);
                     try {
-                        MemorySegment exceptionMessage = (MemorySegment) getException.invoke(wand, severityPtr);
+                        MemorySegment exceptionMessage = (MemorySegment) Bindings.GET_EXCEPTION.invokeExact(wand, severityPtr);
                         String exceptString = exceptionMessage.reinterpret(Long.MAX_VALUE).getString(0, StandardCharsets.US_ASCII);
-                        relinquishMemory.invoke(exceptionMessage);
+                        Bindings.RELINQUISH_MEMORY.invokeExact(exceptionMessage);
                         if (exceptString != null && !exceptString.isEmpty()) {
                             return new MagickException(exceptString, e);
                         } else {
@@ -500,7 +1224,7 @@ final class NativeMagick implements AutoCloseable {
 
                 return wand.callWithArena(arena -> {
                     MemorySegment sizePtr = arena.allocate(ValueLayout.JAVA_LONG);
-                    MemorySegment blobPtr = (MemorySegment) getImageBlob.invoke(wand.wand, sizePtr);
+                    MemorySegment blobPtr = (MemorySegment) Bindings.GET_IMAGE_BLOB.invokeExact(wand.wand, sizePtr);
                     long len = sizePtr.get(ValueLayout.JAVA_LONG, 0);
                     if (blobPtr == null || blobPtr.equals(MemorySegment.NULL) || len <= 0) {
                         throw new MagickException("MagickGetImageBlob returned null/empty");
@@ -512,7 +1236,7 @@ final class NativeMagick implements AutoCloseable {
                     byte[] out = new byte[(int) len];
                     MemorySegment.ofArray(out).copyFrom(blobPtr.reinterpret(len).asSlice(0, len));
 
-                    relinquishMemory.invoke(blobPtr);
+                    Bindings.RELINQUISH_MEMORY.invokeExact(blobPtr);
 
                     return out;
                 });
@@ -543,6 +1267,62 @@ final class NativeMagick implements AutoCloseable {
         }
     }
 
+    /**
+     * Detects the image format from the magic bytes at the start of an image.
+     * Only the header is inspected, no pixels are decoded.
+     *
+     * @param header the leading bytes of an image file
+     * @return the ImageMagick format name, or empty if the format is not recognized
+     */
+    Optional<String> detectFormat(byte[] header) {
+        Objects.requireNonNull(header, "header must be non-null");
+        if (header.length == 0) {
+            return Optional.empty();
+        }
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment magickBuf = arena.allocateFrom(ValueLayout.JAVA_BYTE, header);
+            MemorySegment formatBuf = arena.allocate(MagickPathExtent);
+            int found = (int) Bindings.GET_IMAGE_MAGICK.invokeExact(magickBuf, (long) header.length, formatBuf);
+            if (found == MagickFalse) {
+                return Optional.empty();
+            }
+            String format = formatBuf.getString(0, StandardCharsets.US_ASCII);
+            return format.isEmpty() ? Optional.empty() : Optional.of(format);
+        } catch (Throwable e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Whether a format can hold multiple images in one file,
+     * like the pages of a TIFF or the frames of a GIF.
+     *
+     * @param format the ImageMagick format name
+     * @return {@code true} if the coder joins images, {@code false} if not or if unknown
+     */
+    boolean isMultiImageFormat(String format) {
+        Objects.requireNonNull(format, "format must be non-null");
+        if (FormatBindings.GET_MAGICK_INFO == null || FormatBindings.GET_MAGICK_ADJOIN == null
+                || Bindings.ACQUIRE_EXCEPTION_INFO == null || Bindings.DESTROY_EXCEPTION_INFO == null) {
+            return false;
+        }
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment formatBuf = arena.allocateFrom(format);
+            MemorySegment exception = (MemorySegment) Bindings.ACQUIRE_EXCEPTION_INFO.invokeExact();
+            try {
+                MemorySegment magickInfo = (MemorySegment) FormatBindings.GET_MAGICK_INFO.invokeExact(formatBuf, exception);
+                if (magickInfo == null || magickInfo.equals(MemorySegment.NULL)) {
+                    return false;
+                }
+                return (int) FormatBindings.GET_MAGICK_ADJOIN.invokeExact(magickInfo) != MagickFalse;
+            } finally {
+                Bindings.DESTROY_EXCEPTION_INFO.invokeExact(exception);
+            }
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
     /**
      * List available formats.
      */
@@ -552,7 +1332,7 @@ final class NativeMagick implements AutoCloseable {
                 MemorySegment patternBuf = arena.allocateFrom("*");
                 MemorySegment sizePtr = arena.allocate(ValueLayout.JAVA_LONG);
                 try {
-                    MemorySegment formats = (MemorySegment) queryFormats.invoke(patternBuf, sizePtr);
+                    MemorySegment formats = (MemorySegment) FormatBindings.QUERY_FORMATS.invokeExact(patternBuf, sizePtr);
                     long numberOfFormats = sizePtr.get(ValueLayout.JAVA_LONG, 0);
                     formats = formats.reinterpret(ValueLayout.ADDRESS.byteSize() * numberOfFormats);
                     TreeSet<String> result = new TreeSet<>();
@@ -561,7 +1341,7 @@ final class NativeMagick implements AutoCloseable {
                         result.add(formatName);
                     }
 
-                    relinquishMemory.invoke(formats);
+                    Bindings.RELINQUISH_MEMORY.invokeExact(formats);
                     return result;
                 } catch (Throwable e) {
                     throw new MagickException(e);
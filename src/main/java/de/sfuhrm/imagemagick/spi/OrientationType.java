@@ -0,0 +1,15 @@
+package de.sfuhrm.imagemagick.spi;
+
+/** ImageMagick specific image orientation values.
+ * The values match the EXIF orientation tag. */
+enum OrientationType {
+    UndefinedOrientation,
+    TopLeftOrientation,
+    TopRightOrientation,
+    BottomRightOrientation,
+    BottomLeftOrientation,
+    LeftTopOrientation,
+    RightTopOrientation,
+    RightBottomOrientation,
+    LeftBottomOrientation
+}
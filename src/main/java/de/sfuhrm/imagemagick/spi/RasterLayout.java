@@ -0,0 +1,327 @@
+package de.sfuhrm.imagemagick.spi;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.ComponentSampleModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferDouble;
+import java.awt.image.DataBufferFloat;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.SampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The memory layout of a raster described as ImageMagick pixel maps.
+ * Pixels of a raster with a layout are exported and imported directly
+ * from and to the Java arrays of the data buffer, without a copy.
+ * A layout consists of planes, each plane is a run of bytes per pixel that
+ * is transferred with one map. A pixel interleaved raster like
+ * {@link java.awt.image.BufferedImage#TYPE_3BYTE_BGR} has one plane with the map {@code BGR},
+ * a banded raster has one plane per band.
+ * Packed int rasters with byte aligned masks like
+ * {@link java.awt.image.BufferedImage#TYPE_INT_ARGB} are transferred as four char pixels per int.
+ * Float and double components are transferred normalized to 0..1, HDRI builds
+ * of ImageMagick keep values out of that range.
+ * <p>
+ * The arrays are taken with {@code getData()} of the data buffer. This marks a
+ * {@link java.awt.image.BufferedImage} as untrackable, so Java2D stops accelerating it.
+ * Images of callers are therefore transferred through a band raster of the same layout.
+ * @see <a href="https://imagemagick.org/api/magick-image.php#MagickImportImagePixels">MagickWand, C API: MagickImportImagePixels</a>
+ */
+final class RasterLayout {
+
+    /** The letters of the map for the components of an sRGB color model. */
+    private static final String RGB_COMPONENTS = "RGBA";
+
+    /** The letters of the map for the components of a gray color model. */
+    private static final String GRAY_COMPONENTS = "IA";
+
+    /** The letter for bytes that are skipped. */
+    private static final char PAD = 'P';
+
+    /** A run of bytes per pixel transferred with one map.
+     * @param map the map with one letter per element of the pixel.
+     * @param data the array of the bank as segment.
+     * @param offset the element offset of the run in the pixel at the sample model origin.
+     * */
+    private record Plane(String map, MemorySegment data, long offset) {
+    }
+
+    /** The planes of the raster. */
+    private final List<Plane> planes;
+
+    /** The storage type of the elements of a map. */
+    private final StorageType storageType;
+
+    /** The bytes per data buffer element. */
+    private final int elementBytes;
+
+    /** The elements from one pixel to the next. */
+    private final int pixelStride;
+
+    /** The elements from one row to the next. */
+    private final int scanlineStride;
+
+    /** The sample model translation of the raster. */
+    private final int translateX;
+
+    /** The sample model translation of the raster. */
+    private final int translateY;
+
+    /** Whether the color components are premultiplied with alpha. */
+    private final boolean alphaPremultiplied;
+
+    private RasterLayout(List<Plane> planes, StorageType storageType, int elementBytes,
+                         int pixelStride, int scanlineStride, Raster raster, boolean alphaPremultiplied) {
+        this.planes = planes;
+        this.storageType = storageType;
+        this.elementBytes = elementBytes;
+        this.pixelStride = pixelStride;
+        this.scanlineStride = scanlineStride;
+        this.translateX = raster.getSampleModelTranslateX();
+        this.translateY = raster.getSampleModelTranslateY();
+        this.alphaPremultiplied = alphaPremultiplied;
+    }
+
+    /** Gets the layout of a raster.
+     * @param raster the raster to transfer pixels of.
+     * @param colorModel the color model interpreting the raster.
+     * @return the layout, or empty if ImageMagick can not transfer the pixels directly.
+     * */
+    static Optional<RasterLayout> of(Raster raster, ColorModel colorModel) {
+        ColorSpace colorSpace = colorModel.getColorSpace();
+        String components;
+        if (colorSpace.isCS_sRGB()) {
+            components = RGB_COMPONENTS;
+        } else if (colorSpace == ColorSpace.getInstance(ColorSpace.CS_GRAY)) {
+            components = GRAY_COMPONENTS;
+        } else {
+            return Optional.empty();
+        }
+        if (colorModel.getNumComponents() != raster.getNumBands()
+                || colorModel.getNumColorComponents() != components.length() - 1) {
+            return Optional.empty();
+        }
+        // the color model has the color components first, then alpha
+        String letters = components.substring(0, colorModel.getNumComponents());
+
+        SampleModel sampleModel = raster.getSampleModel();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        Optional<RasterLayout> layout;
+        if (sampleModel instanceof SinglePixelPackedSampleModel packed
+                && colorModel instanceof DirectColorModel
+                && dataBuffer instanceof DataBufferInt ints) {
+            layout = ofPackedInts(raster, packed, ints, letters, colorModel.isAlphaPremultiplied());
+        } else if (sampleModel instanceof ComponentSampleModel component
+                && colorModel instanceof ComponentColorModel) {
+            layout = ofComponents(raster, component, colorModel, letters);
+        } else {
+            layout = Optional.empty();
+        }
+        return layout.filter(l -> l.fits(raster));
+    }
+
+    /** Layout of ints with one byte per component, transferred as four char pixels. */
+    private static Optional<RasterLayout> ofPackedInts(Raster raster, SinglePixelPackedSampleModel packed,
+                                                       DataBufferInt ints, String letters,
+                                                       boolean alphaPremultiplied) {
+        char[] map = new char[Integer.BYTES];
+        Arrays.fill(map, PAD);
+        int[] masks = packed.getBitMasks();
+        for (int band = 0; band < masks.length; band++) {
+            int shift = Integer.numberOfTrailingZeros(masks[band]);
+            if (masks[band] != 0xff << shift || shift % Byte.SIZE != 0) {
+                return Optional.empty();
+            }
+            int position = shift / Byte.SIZE;
+            if (ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN) {
+                position = Integer.BYTES - 1 - position;
+            }
+            map[position] = letters.charAt(band);
+        }
+        Plane plane = new Plane(new String(map),
+                MemorySegment.ofArray(ints.getData()),
+                ints.getOffset());
+        return Optional.of(new RasterLayout(List.of(plane), StorageType.CharPixel, Integer.BYTES,
+                1, packed.getScanlineStride(), raster, alphaPremultiplied));
+    }
+
+    /** Layout of one element per component, possibly interleaved and spread over banks. */
+    private static Optional<RasterLayout> ofComponents(Raster raster, ComponentSampleModel component,
+                                                       ColorModel colorModel, String letters) {
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        StorageType storageType;
+        switch (dataBuffer.getDataType()) {
+            case DataBuffer.TYPE_BYTE:
+                storageType = StorageType.CharPixel;
+                break;
+            case DataBuffer.TYPE_USHORT:
+                storageType = StorageType.ShortPixel;
+                break;
+            case DataBuffer.TYPE_FLOAT:
+                storageType = StorageType.FloatPixel;
+                break;
+            case DataBuffer.TYPE_DOUBLE:
+                storageType = StorageType.DoublePixel;
+                break;
+            default:
+                return Optional.empty();
+        }
+        int elementBits = DataBuffer.getDataTypeSize(dataBuffer.getDataType());
+        for (int size : colorModel.getComponentSize()) {
+            if (size != elementBits) {
+                return Optional.empty();
+            }
+        }
+
+        int pixelStride = component.getPixelStride();
+        int[] bankIndices = component.getBankIndices();
+        int[] bandOffsets = component.getBandOffsets();
+        Integer[] bands = new Integer[bandOffsets.length];
+        for (int band = 0; band < bands.length; band++) {
+            bands[band] = band;
+        }
+        Arrays.sort(bands, Comparator
+                .<Integer>comparingInt(band -> bankIndices[band])
+                .thenComparingInt(band -> bandOffsets[band]));
+
+        // bands of a bank within one pixel stride form a plane
+        List<Plane> planes = new ArrayList<>();
+        List<Integer> planeBanks = new ArrayList<>();
+        char[] map = null;
+        int bank = -1;
+        int base = 0;
+        for (int band : bands) {
+            if (map == null || bankIndices[band] != bank || bandOffsets[band] - base >= pixelStride) {
+                if (map != null) {
+                    planes.add(newPlane(dataBuffer, bank, map, base));
+                    planeBanks.add(bank);
+                }
+                map = new char[pixelStride];
+                Arrays.fill(map, PAD);
+                bank = bankIndices[band];
+                base = bandOffsets[band];
+            }
+            map[bandOffsets[band] - base] = letters.charAt(band);
+        }
+        planes.add(newPlane(dataBuffer, bank, map, base));
+        planeBanks.add(bank);
+
+        // padding of a plane would overwrite other planes of the bank on export
+        for (int i = 0; i < planes.size(); i++) {
+            if (planes.get(i).map().indexOf(PAD) >= 0
+                    && planeBanks.indexOf(planeBanks.get(i)) != planeBanks.lastIndexOf(planeBanks.get(i))) {
+                return Optional.empty();
+            }
+        }
+        return Optional.of(new RasterLayout(planes, storageType, elementBits / Byte.SIZE,
+                pixelStride, component.getScanlineStride(), raster,
+                colorModel.isAlphaPremultiplied() && colorModel.hasAlpha()));
+    }
+
+    private static Plane newPlane(DataBuffer dataBuffer, int bank, char[] map, int base) {
+        MemorySegment data;
+        if (dataBuffer instanceof DataBufferByte bytes) {
+            data = MemorySegment.ofArray(bytes.getData(bank));
+        } else if (dataBuffer instanceof DataBufferUShort shorts) {
+            data = MemorySegment.ofArray(shorts.getData(bank));
+        } else if (dataBuffer instanceof DataBufferFloat floats) {
+            data = MemorySegment.ofArray(floats.getData(bank));
+        } else {
+            data = MemorySegment.ofArray(((DataBufferDouble) dataBuffer).getData(bank));
+        }
+        return new Plane(new String(map), data, (long) dataBuffer.getOffsets()[bank] + base);
+    }
+
+    /** Whether all pixels of the raster are within the arrays. */
+    private boolean fits(Raster raster) {
+        if (raster.getWidth() == 0 || raster.getHeight() == 0) {
+            return true;
+        }
+        int lastX = raster.getMinX() + raster.getWidth() - 1;
+        int lastY = raster.getMinY() + raster.getHeight() - 1;
+        for (Plane plane : planes) {
+            long first = byteOffset(plane, raster.getMinX(), raster.getMinY());
+            long end = byteOffset(plane, lastX, lastY) + getPixelBytes(plane);
+            if (first < 0 || end > plane.data().byteSize()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Whether the color components are premultiplied with alpha
+     * and need to be associated or disassociated in ImageMagick. */
+    boolean isAlphaPremultiplied() {
+        return alphaPremultiplied;
+    }
+
+    /** Exports a region of the current image of the wand into the raster.
+     * @param x the x coordinate in the image.
+     * @param y the y coordinate in the image.
+     * @param rasterX the x coordinate in the raster.
+     * @param rasterY the y coordinate in the raster.
+     * */
+    void exportPixels(NativeMagick.MagickWand wand, long x, long y,
+                      int rasterX, int rasterY, int width, int height) throws MagickException {
+        for (Plane plane : planes) {
+            if (isContiguous(plane, width)) {
+                wand.exportImagePixels(x, y, width, height, plane.map(), storageType,
+                        plane.data().asSlice(byteOffset(plane, rasterX, rasterY)));
+            } else {
+                for (int row = 0; row < height; row++) {
+                    wand.exportImagePixels(x, y + row, width, 1, plane.map(), storageType,
+                            plane.data().asSlice(byteOffset(plane, rasterX, rasterY + row)));
+                }
+            }
+        }
+    }
+
+    /** Imports a region of the raster into the current image of the wand.
+     * @param x the x coordinate in the image.
+     * @param y the y coordinate in the image.
+     * @param rasterX the x coordinate in the raster.
+     * @param rasterY the y coordinate in the raster.
+     * */
+    void importPixels(NativeMagick.MagickWand wand, long x, long y,
+                      int rasterX, int rasterY, int width, int height) throws MagickException {
+        for (Plane plane : planes) {
+            if (isContiguous(plane, width)) {
+                wand.importImagePixels(x, y, width, height, plane.map(), storageType,
+                        plane.data().asSlice(byteOffset(plane, rasterX, rasterY)));
+            } else {
+                for (int row = 0; row < height; row++) {
+                    wand.importImagePixels(x, y + row, width, 1, plane.map(), storageType,
+                            plane.data().asSlice(byteOffset(plane, rasterX, rasterY + row)));
+                }
+            }
+        }
+    }
+
+    /** Whether rows of the given width follow each other without a gap. */
+    private boolean isContiguous(Plane plane, int width) {
+        return (long) scanlineStride * elementBytes == getPixelBytes(plane) * width;
+    }
+
+    private long getPixelBytes(Plane plane) {
+        return plane.map().length() * storageType.getElementLayout().byteSize();
+    }
+
+    private long byteOffset(Plane plane, int rasterX, int rasterY) {
+        return elementBytes * (plane.offset()
+                + (long) (rasterY - translateY) * scanlineStride
+                + (long) (rasterX - translateX) * pixelStride);
+    }
+}
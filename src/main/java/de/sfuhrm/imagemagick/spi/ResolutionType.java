@@ -0,0 +1,8 @@
+package de.sfuhrm.imagemagick.spi;
+
+/** ImageMagick specific resolution unit values. */
+enum ResolutionType {
+    UndefinedResolution,
+    PixelsPerInchResolution,
+    PixelsPerCentimeterResolution
+}
@@ -1,9 +1,11 @@
 package de.sfuhrm.imagemagick.spi;
 
 import javax.imageio.stream.ImageInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
@@ -44,17 +46,81 @@ class SpiCommon {
 
     /** The buffer size for reading image data. */
     private static final int BUFFER_SIZE = 16 * 1024;
-    static byte[] readFully(ImageInputStream stream) throws IOException {
-        ByteArrayOutputStream os = new ByteArrayOutputStream();
+
+    /** Reads at most {@code maxLength} bytes from the stream.
+     * @return an array with the bytes read, shorter than {@code maxLength}
+     * if the stream ended before.
+     * */
+    static byte[] readPrefix(ImageInputStream stream, int maxLength) throws IOException {
+        byte[] prefix = new byte[maxLength];
+        int offset = 0;
+        while (offset < maxLength) {
+            int len = stream.read(prefix, offset, maxLength - offset);
+            if (len < 0) {
+                break;
+            }
+            offset += len;
+        }
+        return offset == maxLength ? prefix : Arrays.copyOf(prefix, offset);
+    }
+
+    /** The size of the native chunks for streams of unknown length. */
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    /** Reads the remainder of the stream into native memory.
+     * If the stream length is known, the data is read into one
+     * segment of exactly that size. Otherwise the data is collected
+     * in native chunks that are joined at the end. No heap
+     * copy of the data is created in either case.
+     * @param stream the stream to read.
+     * @param arena the arena to allocate the result in.
+     * @return a segment holding exactly the bytes read.
+     */
+    static MemorySegment readFully(ImageInputStream stream, Arena arena) throws IOException {
         byte[] buffer = new byte[BUFFER_SIZE];
-        int len;
-        do {
-            len = stream.read(buffer);
-            if (len > 0) {
-                os.write(buffer, 0, len);
+        long length = stream.length();
+        if (length >= 0) {
+            long remaining = Math.max(0, length - stream.getStreamPosition());
+            MemorySegment segment = arena.allocate(remaining);
+            long offset = readInto(stream, buffer, segment, 0);
+            return segment.asSlice(0, offset);
+        }
+
+        try (Arena chunkArena = Arena.ofConfined()) {
+            List<MemorySegment> chunks = new ArrayList<>();
+            long total = 0;
+            long filled;
+            do {
+                MemorySegment chunk = chunkArena.allocate(CHUNK_SIZE);
+                filled = readInto(stream, buffer, chunk, 0);
+                chunks.add(chunk.asSlice(0, filled));
+                total += filled;
+            } while (filled == CHUNK_SIZE);
+
+            MemorySegment segment = arena.allocate(total);
+            long offset = 0;
+            for (MemorySegment chunk : chunks) {
+                MemorySegment.copy(chunk, 0, segment, offset, chunk.byteSize());
+                offset += chunk.byteSize();
+            }
+            return segment;
+        }
+    }
+
+    /** Fills the target segment from the stream until it is full or the stream ends.
+     * @return the number of bytes filled.
+     * */
+    private static long readInto(ImageInputStream stream, byte[] buffer, MemorySegment target, long offset) throws IOException {
+        MemorySegment bufferSegment = MemorySegment.ofArray(buffer);
+        while (offset < target.byteSize()) {
+            int len = stream.read(buffer, 0, (int) Math.min(buffer.length, target.byteSize() - offset));
+            if (len < 0) {
+                break;
             }
-        } while (len >= 0);
-        return os.toByteArray();
+            MemorySegment.copy(bufferSegment, 0, target, offset, len);
+            offset += len;
+        }
+        return offset;
     }
 
     private static String[] imageFormats;
@@ -5,29 +5,29 @@ import java.lang.foreign.ValueLayout;
 import java.util.function.Function;
 
 enum StorageType {
-    UndefinedPixel(null, null, null),
+    UndefinedPixel(null, null),
     CharPixel(ValueLayout.JAVA_BYTE, n -> {
         var array = new byte[n];
         return new Pair(array, MemorySegment.ofArray(array));
-    }, obj -> MemorySegment.ofArray((byte[]) obj)),
+    }),
     DoublePixel(ValueLayout.JAVA_DOUBLE, n -> {
         var array = new double[n];
         return new Pair(array, MemorySegment.ofArray(array));
-    }, obj -> MemorySegment.ofArray((double[]) obj)),
+    }),
     FloatPixel(ValueLayout.JAVA_FLOAT, n -> {
         var array = new float[n];
         return new Pair(array, MemorySegment.ofArray(array));
-    }, obj -> MemorySegment.ofArray((float[]) obj)),
+    }),
     LongPixel(ValueLayout.JAVA_LONG, n -> {
         var array = new long[n];
         return new Pair(array, MemorySegment.ofArray(array));
-    }, obj -> MemorySegment.ofArray((long[]) obj)),
-    LongLongPixel(null, null, null),
-    QuantumPixel(null, null, null),
+    }),
+    LongLongPixel(null, null),
+    QuantumPixel(null, null),
     ShortPixel(ValueLayout.JAVA_SHORT, n -> {
         var array = new short[n];
         return new Pair(array, MemorySegment.ofArray(array));
-    }, obj -> MemorySegment.ofArray((short[]) obj));
+    });
 
     /** The FFM API value layout for this storage type. */
     private final ValueLayout valueLayout;
@@ -38,18 +38,11 @@ enum StorageType {
      * */
     private final Function<Integer, Pair<Object, MemorySegment>> newArrayFunction;
 
-    /**
-     * Function creating a MemorySegment out of the input Java array.
-     */
-    private final Function<Object, MemorySegment> fromArrayFunction;
-
     StorageType(
             ValueLayout valueLayout,
-            Function<Integer, Pair<Object, MemorySegment>> newArrayFunction,
-            Function<Object, MemorySegment> fromArrayFunction) {
+            Function<Integer, Pair<Object, MemorySegment>> newArrayFunction) {
         this.valueLayout = valueLayout;
         this.newArrayFunction = newArrayFunction;
-        this.fromArrayFunction = fromArrayFunction;
     }
 
     ValueLayout getElementLayout() {
@@ -59,8 +52,4 @@ enum StorageType {
     Pair<Object, MemorySegment> newArray(int n) {
         return newArrayFunction.apply(n);
     }
-
-    MemorySegment toMemorySegment(Object array) {
-        return fromArrayFunction.apply(array);
-    }
 }
@@ -1,5 +0,0 @@
-package de.sfuhrm.imagemagick.spi;
-
-interface SupplierWithException<T> {
-    T get() throws Throwable;
-}
@@ -0,0 +1,35 @@
+package de.sfuhrm.imagemagick.spi;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.foreign.MemorySegment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ImageInputStreamAdapterTest {
+
+    private static final int SEEK_SET = 0;
+    private static final int SEEK_END = 2;
+
+    @Test
+    public void seekEndWithUnknownLength() throws IOException {
+        byte[] data = new byte[200_000];
+        ImageInputStream stream = new MemoryCacheImageInputStream(new ByteArrayInputStream(data));
+        stream.skipBytes(10);
+        assertEquals(-1, stream.length());
+
+        ImageInputStreamAdapter adapter = new ImageInputStreamAdapter(stream);
+        assertEquals(data.length - 10, adapter.seek(0, SEEK_END, MemorySegment.NULL));
+        assertEquals(data.length - 10, adapter.tell(MemorySegment.NULL));
+        assertEquals(data.length - 14, adapter.seek(-4, SEEK_END, MemorySegment.NULL));
+
+        // the data read to find the end stays readable
+        assertEquals(5, adapter.seek(5, SEEK_SET, MemorySegment.NULL));
+        assertEquals(15, stream.getStreamPosition());
+        assertEquals(null, adapter.getFailure());
+    }
+}
@@ -49,6 +49,29 @@ public class ImageMagickImageReaderSpiTest {
         assertFalse(canDecode);
     }
 
+    /** An uncompressed true color TGA, a format without magic bytes. */
+    private static byte[] createTga(int width, int height) {
+        byte[] image = new byte[18 + width * height * 3];
+        image[2] = 2;
+        image[12] = (byte) width;
+        image[13] = (byte) (width >> 8);
+        image[14] = (byte) height;
+        image[15] = (byte) (height >> 8);
+        image[16] = 24;
+        return image;
+    }
+
+    @Test
+    public void canDecodeWithTga() throws IOException {
+        ImageInputStream imageInputStream = ImageIO.createImageInputStream(
+                new ByteArrayInputStream(createTga(128, 64)));
+
+        // only formats with magic bytes are detected
+        boolean canDecode = imageMagickImageReaderSpi.canDecodeInput(imageInputStream);
+        assertFalse(canDecode);
+        assertEquals(0, imageInputStream.getStreamPosition());
+    }
+
     @Test
     public void createReaderInstance() {
         ImageReader reader = imageMagickImageReaderSpi.createReaderInstance(null);
@@ -6,13 +6,27 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
 
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReadParam;
 import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.stream.FileImageOutputStream;
 import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Iterator;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -47,6 +61,97 @@ public class ImageMagickImageReaderTest {
         assertEquals(source.height(), h);
     }
 
+    @Test
+    public void setInputWithPath() throws IOException {
+        TestImage.ImageReference source = TestImage.ImageReference.PNG_RGB_8;
+        Path tmpFile = Files.createTempFile("img", ".png");
+        try {
+            Files.write(tmpFile, TestImage.readTestImage(source));
+            imageMagickImageReader.setInput(tmpFile, false);
+
+            BufferedImage actualImage = imageMagickImageReader.read(0);
+            assertEquals(source.width(), actualImage.getWidth());
+            assertEquals(source.height(), actualImage.getHeight());
+        } finally {
+            imageMagickImageReader.dispose();
+            Files.delete(tmpFile);
+        }
+    }
+
+    @Test
+    public void setInputWithFile() throws IOException {
+        TestImage.ImageReference source = TestImage.ImageReference.PNG_RGB_8;
+        Path tmpFile = Files.createTempFile("img", ".png");
+        try {
+            Files.write(tmpFile, TestImage.readTestImage(source));
+            imageMagickImageReader.setInput(tmpFile.toFile(), false);
+
+            assertEquals(source.width(), imageMagickImageReader.getWidth(0));
+            assertEquals(source.height(), imageMagickImageReader.getHeight(0));
+        } finally {
+            imageMagickImageReader.dispose();
+            Files.delete(tmpFile);
+        }
+    }
+
+    @Test
+    public void readFrameWithFile() throws IOException, MagickException {
+        int[] colors = {0xff0000, 0x00ff00, 0x0000ff};
+        ImageMagickImageWriter writer = new ImageMagickImageWriter(
+                new AbstractImageMagickImageWriterSpi("TIFF", "tif", "image/tiff"));
+        Path tmpFile = Files.createTempFile("img", ".tif");
+        try {
+            try (ImageOutputStream imageOutputStream = new FileImageOutputStream(tmpFile.toFile())) {
+                writer.setOutput(imageOutputStream);
+                writer.prepareWriteSequence(null);
+                for (int color : colors) {
+                    BufferedImage frame = new BufferedImage(16, 8, BufferedImage.TYPE_INT_RGB);
+                    Graphics2D graphics = frame.createGraphics();
+                    graphics.setColor(new Color(color));
+                    graphics.fillRect(0, 0, frame.getWidth(), frame.getHeight());
+                    graphics.dispose();
+                    writer.writeToSequence(new IIOImage(frame, null, null), null);
+                }
+                writer.endWriteSequence();
+            } finally {
+                writer.dispose();
+            }
+
+            imageMagickImageReader.setInput(tmpFile.toFile(), false);
+            assertEquals(colors.length, imageMagickImageReader.getNumImages(true));
+
+            // only the requested frame is decoded
+            BufferedImage actualImage = imageMagickImageReader.read(2);
+            assertEquals(colors[2], actualImage.getRGB(3, 4) & 0xffffff);
+            assertEquals(1, imageMagickImageReader.getDecodedImageCount());
+
+            actualImage = imageMagickImageReader.read(1);
+            assertEquals(colors[1], actualImage.getRGB(3, 4) & 0xffffff);
+            assertEquals(2, imageMagickImageReader.getDecodedImageCount());
+        } finally {
+            imageMagickImageReader.dispose();
+            Files.delete(tmpFile);
+        }
+    }
+
+    @Test
+    public void readAfterGetWidth() throws IOException {
+        TestImage.ImageReference source = TestImage.ImageReference.PNG_RGBA_8;
+        byte[] image = TestImage.readTestImage(source);
+
+        ImageInputStream imageInputStream = ImageIO.createImageInputStream(
+                new ByteArrayInputStream(image));
+        imageMagickImageReader.setInput(imageInputStream, false);
+
+        assertEquals(source.width(), imageMagickImageReader.getWidth(0));
+        assertEquals(source.height(), imageMagickImageReader.getHeight(0));
+        assertEquals(1, imageMagickImageReader.getNumImages(true));
+
+        BufferedImage actualImage = imageMagickImageReader.read(0);
+        assertEquals(source.width(), actualImage.getWidth());
+        assertEquals(source.height(), actualImage.getHeight());
+    }
+
     @Test
     public void getNumImages() throws IOException {
         byte[] image = TestImage.readTestImage(TestImage.ImageReference.JPEG_HSV_8);
@@ -59,6 +164,30 @@ public class ImageMagickImageReaderTest {
         assertEquals(1, num);
     }
 
+    @Test
+    public void getNumImagesWithoutSearch() throws IOException {
+        byte[] image = TestImage.readTestImage(TestImage.ImageReference.PNG_RGB_8);
+
+        ImageInputStream imageInputStream = ImageIO.createImageInputStream(
+                new ByteArrayInputStream(image));
+        imageMagickImageReader.setInput(imageInputStream, false);
+
+        assertEquals(-1, imageMagickImageReader.getNumImages(false));
+        assertEquals(1, imageMagickImageReader.getNumImages(true));
+        assertEquals(1, imageMagickImageReader.getNumImages(false));
+    }
+
+    @Test
+    public void readWithIndexOutOfBounds() throws IOException {
+        byte[] image = TestImage.readTestImage(TestImage.ImageReference.PNG_RGB_8);
+
+        ImageInputStream imageInputStream = ImageIO.createImageInputStream(
+                new ByteArrayInputStream(image));
+        imageMagickImageReader.setInput(imageInputStream, false);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> imageMagickImageReader.read(1));
+    }
+
     void readComparing(TestImage.ImageReference imageReference) throws IOException {
         byte[] image = TestImage.readTestImage(imageReference);
 
@@ -76,6 +205,320 @@ public class ImageMagickImageReaderTest {
         ImageAsserts.compareBufferedImages(expectedImage, actualImage, 1);
     }
 
+    @Test
+    public void readWithSourceRegion() throws IOException {
+        TestImage.ImageReference source = TestImage.ImageReference.PNG_RGB_8;
+        byte[] image = TestImage.readTestImage(source);
+
+        ImageInputStream imageInputStream = ImageIO.createImageInputStream(
+                new ByteArrayInputStream(image));
+        imageMagickImageReader.setInput(imageInputStream, false);
+
+        ImageReadParam param = imageMagickImageReader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(10, 20, 100, 50));
+        BufferedImage actualImage = imageMagickImageReader.read(0, param);
+
+        BufferedImage expectedImage = TestImage.readWithJDK(source).getSubimage(10, 20, 100, 50);
+        assertEquals(100, actualImage.getWidth());
+        assertEquals(50, actualImage.getHeight());
+        ImageAsserts.compareBufferedImages(expectedImage, actualImage, 1);
+    }
+
+    @Test
+    public void readWithSubsampling() throws IOException {
+        TestImage.ImageReference source = TestImage.ImageReference.PNG_RGB_8;
+        byte[] image = TestImage.readTestImage(source);
+
+        ImageInputStream imageInputStream = ImageIO.createImageInputStream(
+                new ByteArrayInputStream(image));
+        imageMagickImageReader.setInput(imageInputStream, false);
+
+        ImageReadParam param = imageMagickImageReader.getDefaultReadParam();
+        param.setSourceSubsampling(2, 2, 0, 0);
+        BufferedImage actualImage = imageMagickImageReader.read(0, param);
+
+        BufferedImage fullImage = TestImage.readWithJDK(source);
+        BufferedImage expectedImage = new BufferedImage(source.width() / 2, source.height() / 2, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < expectedImage.getHeight(); y++) {
+            for (int x = 0; x < expectedImage.getWidth(); x++) {
+                expectedImage.setRGB(x, y, fullImage.getRGB(2 * x, 2 * y));
+            }
+        }
+        ImageAsserts.compareBufferedImages(expectedImage, actualImage, 1);
+    }
+
+    @Test
+    public void readWithOddSubsampling() throws IOException {
+        TestImage.ImageReference source = TestImage.ImageReference.PNG_RGB_8;
+        byte[] image = TestImage.readTestImage(source);
+
+        ImageInputStream imageInputStream = ImageIO.createImageInputStream(
+                new ByteArrayInputStream(image));
+        imageMagickImageReader.setInput(imageInputStream, false);
+
+        // neither the region size nor the image size is a multiple of the period
+        Rectangle region = new Rectangle(1, 2, source.width() - 2, source.height() - 3);
+        ImageReadParam param = imageMagickImageReader.getDefaultReadParam();
+        param.setSourceRegion(region);
+        param.setSourceSubsampling(3, 3, 0, 0);
+        BufferedImage actualImage = imageMagickImageReader.read(0, param);
+
+        BufferedImage fullImage = imageMagickImageReader.read(0);
+        assertEquals((region.width + 2) / 3, actualImage.getWidth());
+        assertEquals((region.height + 2) / 3, actualImage.getHeight());
+        for (int y = 0; y < actualImage.getHeight(); y++) {
+            for (int x = 0; x < actualImage.getWidth(); x++) {
+                assertEquals(fullImage.getRGB(region.x + 3 * x, region.y + 3 * y), actualImage.getRGB(x, y),
+                        "pixel " + x + "/" + y);
+            }
+        }
+    }
+
+    @Test
+    public void readWithSourceRenderSize() throws IOException {
+        TestImage.ImageReference source = TestImage.ImageReference.JPEG_HSV_8;
+        byte[] image = TestImage.readTestImage(source);
+
+        ImageInputStream imageInputStream = ImageIO.createImageInputStream(
+                new ByteArrayInputStream(image));
+        imageMagickImageReader.setInput(imageInputStream, false);
+
+        ImageReadParam param = imageMagickImageReader.getDefaultReadParam();
+        assertTrue(param.canSetSourceRenderSize());
+        param.setSourceRenderSize(new Dimension(source.width() / 4, source.height() / 4));
+        BufferedImage actualImage = imageMagickImageReader.read(0, param);
+
+        assertEquals(source.width() / 4, actualImage.getWidth());
+        assertEquals(source.height() / 4, actualImage.getHeight());
+        assertEquals(source.width(), imageMagickImageReader.getWidth(0));
+    }
+
+    @Test
+    public void readWithSourceRenderSizeAndPath() throws IOException {
+        TestImage.ImageReference source = TestImage.ImageReference.JPEG_HSV_8;
+        Path tmpFile = Files.createTempFile("img", ".jpg");
+        try {
+            // file inputs are decoded per frame with the jpeg:size hint
+            Files.write(tmpFile, TestImage.readTestImage(source));
+            imageMagickImageReader.setInput(tmpFile, false);
+
+            for (Dimension renderSize : new Dimension[] {
+                    new Dimension(source.width() / 4, source.height() / 4),
+                    new Dimension(source.width() / 3, source.height() / 5)}) {
+                ImageReadParam param = imageMagickImageReader.getDefaultReadParam();
+                param.setSourceRenderSize(renderSize);
+                BufferedImage actualImage = imageMagickImageReader.read(0, param);
+
+                assertEquals(renderSize.width, actualImage.getWidth());
+                assertEquals(renderSize.height, actualImage.getHeight());
+            }
+            assertEquals(source.width(), imageMagickImageReader.getWidth(0));
+            assertEquals(source.width(), imageMagickImageReader.read(0).getWidth());
+        } finally {
+            imageMagickImageReader.dispose();
+            Files.delete(tmpFile);
+        }
+    }
+
+    @Test
+    public void readTile() throws IOException {
+        TestImage.ImageReference source = TestImage.ImageReference.PNG_RGB_8;
+        byte[] image = TestImage.readTestImage(source);
+
+        ImageInputStream imageInputStream = ImageIO.createImageInputStream(
+                new ByteArrayInputStream(image));
+        imageMagickImageReader.setInput(imageInputStream, false);
+
+        assertFalse(imageMagickImageReader.isImageTiled(0));
+        assertEquals(source.width(), imageMagickImageReader.getTileWidth(0));
+        assertEquals(source.height(), imageMagickImageReader.getTileHeight(0));
+
+        BufferedImage tile = imageMagickImageReader.readTile(0, 0, 0);
+        assertEquals(source.width(), tile.getWidth());
+        assertEquals(source.height(), tile.getHeight());
+        assertThrows(IllegalArgumentException.class, () -> imageMagickImageReader.readTile(0, 1, 0));
+    }
+
+    @Test
+    public void readTileWithTiledTiff() throws IOException {
+        BufferedImage source = TestImage.readWithJDK(TestImage.ImageReference.PNG_RGB_8);
+        ImageMagickImageWriter writer = new ImageMagickImageWriter(
+                new AbstractImageMagickImageWriterSpi("TIFF", "tif", "image/tiff"));
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = new MemoryCacheImageOutputStream(byteArrayOutputStream)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setTiling(64, 32, 0, 0);
+            writer.setOutput(imageOutputStream);
+            writer.write(null, new IIOImage(source, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+
+        imageMagickImageReader.setInput(ImageIO.createImageInputStream(
+                new ByteArrayInputStream(byteArrayOutputStream.toByteArray())), false);
+
+        assertTrue(imageMagickImageReader.isImageTiled(0));
+        assertEquals(64, imageMagickImageReader.getTileWidth(0));
+        assertEquals(32, imageMagickImageReader.getTileHeight(0));
+
+        BufferedImage tile = imageMagickImageReader.readTile(0, 1, 2);
+        assertEquals(64, tile.getWidth());
+        assertEquals(32, tile.getHeight());
+        ImageAsserts.compareBufferedImages(source.getSubimage(64, 64, 64, 32), tile, 1);
+    }
+
+    @Test
+    public void readWithStandardImageType() throws IOException {
+        byte[] image = TestImage.readTestImage(TestImage.ImageReference.PNG_RGB_8);
+        imageMagickImageReader.setInput(ImageIO.createImageInputStream(
+                new ByteArrayInputStream(image)), false);
+        assertEquals(BufferedImage.TYPE_3BYTE_BGR, imageMagickImageReader.read(0).getType());
+
+        image = TestImage.readTestImage(TestImage.ImageReference.PNG_RGBA_8);
+        imageMagickImageReader.setInput(ImageIO.createImageInputStream(
+                new ByteArrayInputStream(image)), false);
+        assertEquals(BufferedImage.TYPE_4BYTE_ABGR, imageMagickImageReader.read(0).getType());
+    }
+
+    @Test
+    public void readWithPackedIntDestinationType() throws IOException {
+        byte[] image = TestImage.readTestImage(TestImage.ImageReference.PNG_RGBA_8);
+        imageMagickImageReader.setInput(ImageIO.createImageInputStream(
+                new ByteArrayInputStream(image)), false);
+        BufferedImage natural = imageMagickImageReader.read(0);
+
+        for (int imageType : new int[] {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_ARGB_PRE}) {
+            ImageReadParam param = imageMagickImageReader.getDefaultReadParam();
+            param.setDestinationType(ImageTypeSpecifier.createFromBufferedImageType(imageType));
+            BufferedImage actual = imageMagickImageReader.read(0, param);
+            assertEquals(imageType, actual.getType());
+
+            assertEquals(natural.getWidth(), actual.getWidth());
+            assertEquals(natural.getHeight(), actual.getHeight());
+            for (int y = 0; y < natural.getHeight(); y++) {
+                for (int x = 0; x < natural.getWidth(); x++) {
+                    int argb = natural.getRGB(x, y);
+                    int pixel = ((int[]) actual.getRaster().getDataElements(x, y, null))[0];
+                    int alpha = argb >>> 24;
+                    for (int shift = 0; shift < 32; shift += 8) {
+                        int expectedGun = 0xff & (argb >>> shift);
+                        if (imageType == BufferedImage.TYPE_INT_RGB && shift == 24) {
+                            expectedGun = 0;
+                        } else if (imageType == BufferedImage.TYPE_INT_ARGB_PRE && shift < 24) {
+                            expectedGun = expectedGun * alpha / 255;
+                        }
+                        int actualGun = 0xff & (pixel >>> shift);
+                        assertTrue(Math.abs(expectedGun - actualGun) <= 1,
+                                "Pixel " + x + "," + y + " of type " + imageType);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void readWithTranslucentPremultipliedDestination() throws IOException {
+        BufferedImage source = new BufferedImage(16, 8, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < source.getHeight(); y++) {
+            for (int x = 0; x < source.getWidth(); x++) {
+                source.setRGB(x, y, 0x80c04020);
+            }
+        }
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        assertTrue(ImageIO.write(source, "png", byteArrayOutputStream));
+        imageMagickImageReader.setInput(ImageIO.createImageInputStream(
+                new ByteArrayInputStream(byteArrayOutputStream.toByteArray())), false);
+
+        ImageReadParam typeParam = imageMagickImageReader.getDefaultReadParam();
+        typeParam.setDestinationType(ImageTypeSpecifier.createFromBufferedImageType(BufferedImage.TYPE_INT_ARGB_PRE));
+        BufferedImage typed = imageMagickImageReader.read(0, typeParam);
+
+        ImageReadParam destinationParam = imageMagickImageReader.getDefaultReadParam();
+        destinationParam.setDestination(new BufferedImage(source.getWidth(), source.getHeight(),
+                BufferedImage.TYPE_INT_ARGB_PRE));
+        BufferedImage destination = imageMagickImageReader.read(0, destinationParam);
+
+        // the components are premultiplied with alpha 0x80
+        int expected = 0x80602010;
+        for (BufferedImage actual : new BufferedImage[] {typed, destination}) {
+            assertEquals(BufferedImage.TYPE_INT_ARGB_PRE, actual.getType());
+            int pixel = actual.getRaster().getDataBuffer().getElem(3 + 4 * actual.getWidth());
+            for (int shift = 0; shift < 32; shift += 8) {
+                assertEquals(0xff & (expected >>> shift), 0xff & (pixel >>> shift), 1,
+                        "component at bit " + shift + " of " + Integer.toHexString(pixel));
+            }
+        }
+    }
+
+    @Test
+    public void readWithUnsupportedDestinationType() throws IOException {
+        byte[] image = TestImage.readTestImage(TestImage.ImageReference.PNG_RGB_8);
+        imageMagickImageReader.setInput(ImageIO.createImageInputStream(
+                new ByteArrayInputStream(image)), false);
+        ImageReadParam param = imageMagickImageReader.getDefaultReadParam();
+        param.setDestinationType(ImageTypeSpecifier.createFromBufferedImageType(BufferedImage.TYPE_BYTE_BINARY));
+        assertThrows(IIOException.class, () -> imageMagickImageReader.read(0, param));
+    }
+
+    @Test
+    public void readWithDestination() throws IOException {
+        TestImage.ImageReference source = TestImage.ImageReference.PNG_RGB_8;
+        byte[] image = TestImage.readTestImage(source);
+        imageMagickImageReader.setInput(ImageIO.createImageInputStream(
+                new ByteArrayInputStream(image)), false);
+        BufferedImage natural = imageMagickImageReader.read(0);
+
+        // packed ints and byte interleaved are exported into directly
+        for (int imageType : new int[] {BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR}) {
+            BufferedImage destination = new BufferedImage(source.width() + 3, source.height() + 2, imageType);
+            ImageReadParam param = imageMagickImageReader.getDefaultReadParam();
+            param.setDestination(destination);
+            param.setDestinationOffset(new Point(3, 2));
+
+            BufferedImage actual = imageMagickImageReader.read(0, param);
+            assertSame(destination, actual);
+            assertEquals(0, actual.getRGB(0, 0) & 0xffffff);
+            ImageAsserts.compareBufferedImages(natural,
+                    actual.getSubimage(3, 2, source.width(), source.height()),
+                    1);
+        }
+
+        // other types get the image drawn into
+        BufferedImage destination = new BufferedImage(source.width(), source.height(), BufferedImage.TYPE_USHORT_565_RGB);
+        ImageReadParam param = imageMagickImageReader.getDefaultReadParam();
+        param.setDestination(destination);
+        assertSame(destination, imageMagickImageReader.read(0, param));
+    }
+
+    @Test
+    public void readWithDestinationAndOddSubsampling() throws IOException {
+        TestImage.ImageReference source = TestImage.ImageReference.PNG_RGB_8;
+        byte[] image = TestImage.readTestImage(source);
+        imageMagickImageReader.setInput(ImageIO.createImageInputStream(
+                new ByteArrayInputStream(image)), false);
+        BufferedImage fullImage = imageMagickImageReader.read(0);
+
+        // neither the region size nor the image size is a multiple of the period
+        Rectangle region = new Rectangle(1, 2, source.width() - 2, source.height() - 3);
+        int width = (region.width + 2) / 3;
+        int height = (region.height + 2) / 3;
+        BufferedImage destination = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        ImageReadParam param = imageMagickImageReader.getDefaultReadParam();
+        param.setDestination(destination);
+        param.setSourceRegion(region);
+        param.setSourceSubsampling(3, 3, 0, 0);
+
+        BufferedImage actual = imageMagickImageReader.read(0, param);
+        assertSame(destination, actual);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                assertEquals(fullImage.getRGB(region.x + 3 * x, region.y + 3 * y), actual.getRGB(x, y),
+                        "pixel " + x + "/" + y);
+            }
+        }
+    }
+
     @Test
     public void getImageTypes() throws IOException {
         // first image
@@ -91,6 +534,8 @@ public class ImageMagickImageReaderTest {
         assertTrue(iter.hasNext());
         ImageTypeSpecifier spec = iter.next();
         assertNotNull(spec);
+        assertTrue(iter.hasNext());
+        assertEquals(BufferedImage.TYPE_INT_RGB, iter.next().getBufferedImageType());
         assertFalse(iter.hasNext());
 
         assertEquals(3, spec.getNumComponents());
@@ -102,6 +547,39 @@ public class ImageMagickImageReaderTest {
         assertNotNull(spec.getColorModel());
     }
 
+    @ParameterizedTest(name = "{index} image {0}")
+    @EnumSource(TestImage.ImageReference.class)
+    public void getImageTypesMatchesRead(TestImage.ImageReference source) throws IOException {
+        byte[] image = TestImage.readTestImage(source);
+        imageMagickImageReader.setInput(ImageIO.createImageInputStream(
+                new ByteArrayInputStream(image)), false);
+
+        // the types are known before any pixels are decoded
+        ImageTypeSpecifier spec = imageMagickImageReader.getImageTypes(0).next();
+        BufferedImage actualImage = imageMagickImageReader.read(0);
+        assertEquals(ImageTypeSpecifier.createFromRenderedImage(actualImage), spec);
+        assertEquals(spec, ImageTypeSpecifier.createFromRenderedImage(actualImage));
+    }
+
+    @ParameterizedTest(name = "{index} image {0}")
+    @EnumSource(TestImage.ImageReference.class)
+    public void readWithEveryImageType(TestImage.ImageReference source) throws IOException {
+        byte[] image = TestImage.readTestImage(source);
+        imageMagickImageReader.setInput(ImageIO.createImageInputStream(
+                new ByteArrayInputStream(image)), false);
+
+        Iterator<ImageTypeSpecifier> imageTypes = imageMagickImageReader.getImageTypes(0);
+        while (imageTypes.hasNext()) {
+            ImageTypeSpecifier imageType = imageTypes.next();
+            ImageReadParam param = imageMagickImageReader.getDefaultReadParam();
+            param.setDestinationType(imageType);
+            BufferedImage actualImage = imageMagickImageReader.read(0, param);
+            assertEquals(source.width(), actualImage.getWidth());
+            assertEquals(source.height(), actualImage.getHeight());
+            assertEquals(imageType.getColorModel(), actualImage.getColorModel());
+        }
+    }
+
     @Test
     public void readWithMultiple() throws IOException {
         // first image
@@ -130,6 +608,22 @@ public class ImageMagickImageReaderTest {
         assertEquals(imageReference.height(), actualImage.getHeight());
     }
 
+    @Test
+    public void getWidthAfterSetInput() throws IOException {
+        TestImage.ImageReference first = TestImage.ImageReference.PNG_RGB_8;
+        imageMagickImageReader.setInput(ImageIO.createImageInputStream(
+                new ByteArrayInputStream(TestImage.readTestImage(first))), false);
+        assertEquals(first.width(), imageMagickImageReader.getWidth(0));
+        assertEquals(first.height(), imageMagickImageReader.getHeight(0));
+
+        // the attributes of the first input are not reused
+        TestImage.ImageReference second = TestImage.ImageReference.JPEG_HSV_8;
+        imageMagickImageReader.setInput(ImageIO.createImageInputStream(
+                new ByteArrayInputStream(TestImage.readTestImage(second))), false);
+        assertEquals(second.width(), imageMagickImageReader.getWidth(0));
+        assertEquals(second.height(), imageMagickImageReader.getHeight(0));
+    }
+
     /**
      * @see ImageMagickImageReader#read(int, ImageReadParam) 
      */
@@ -5,18 +5,35 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
 
+import javax.imageio.IIOImage;
 import javax.imageio.ImageIO;
 import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
 import javax.imageio.stream.FileImageOutputStream;
 import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.color.ColorSpace;
 import java.awt.image.BufferedImage;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.DataBuffer;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Spliterators;
+import java.util.stream.StreamSupport;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -79,6 +96,274 @@ public class ImageMagickImageWriterTest {
         tmpFile.delete();
     }
 
+    /** Writes sub-images with offsets and strides of several types. */
+    @ParameterizedTest(name = "{index} type {0}")
+    @ValueSource(ints = {
+            BufferedImage.TYPE_INT_RGB,
+            BufferedImage.TYPE_INT_ARGB,
+            BufferedImage.TYPE_INT_ARGB_PRE,
+            BufferedImage.TYPE_INT_BGR,
+            BufferedImage.TYPE_3BYTE_BGR,
+            BufferedImage.TYPE_BYTE_INDEXED})
+    public void writeWithImageType(int imageType) throws IOException {
+        BufferedImage source = TestImage.readWithJDK(TestImage.ImageReference.PNG_RGB_8);
+        BufferedImage converted = new BufferedImage(source.getWidth(), source.getHeight(), imageType);
+        Graphics2D graphics = converted.createGraphics();
+        graphics.drawImage(source, 0, 0, null);
+        graphics.dispose();
+        BufferedImage expectedImage = converted.getSubimage(1, 2, source.getWidth() - 3, source.getHeight() - 4);
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = new MemoryCacheImageOutputStream(byteArrayOutputStream)) {
+            imageMagickImageWriter.setOutput(imageOutputStream);
+            imageMagickImageWriter.write(expectedImage);
+        }
+
+        BufferedImage actualImage = TestImage.readWithJDK(byteArrayOutputStream.toByteArray(), 0);
+        ImageAsserts.compareBufferedImages(expectedImage, actualImage, 1);
+    }
+
+    /** Writes translucent premultiplied pixels, they need to be written with straight alpha. */
+    @Test
+    public void writeWithTranslucentPremultipliedAlpha() throws IOException {
+        int straightArgb = 0x80c04020;
+        BufferedImage expectedImage = new BufferedImage(16, 8, BufferedImage.TYPE_INT_ARGB_PRE);
+        for (int y = 0; y < expectedImage.getHeight(); y++) {
+            for (int x = 0; x < expectedImage.getWidth(); x++) {
+                expectedImage.setRGB(x, y, straightArgb);
+            }
+        }
+        // the raster holds the premultiplied components
+        assertEquals(0x80602010, expectedImage.getRaster().getDataBuffer().getElem(0));
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = new MemoryCacheImageOutputStream(byteArrayOutputStream)) {
+            imageMagickImageWriter.setOutput(imageOutputStream);
+            imageMagickImageWriter.write(expectedImage);
+        }
+
+        BufferedImage actualImage = TestImage.readWithJDK(byteArrayOutputStream.toByteArray(), 0);
+        int actualArgb = actualImage.getRGB(3, 4);
+        for (int shift = 0; shift < 32; shift += 8) {
+            assertEquals(0xff & (straightArgb >>> shift), 0xff & (actualArgb >>> shift), 2,
+                    "component at bit " + shift + " of " + Integer.toHexString(actualArgb));
+        }
+    }
+
+    @Test
+    public void getDefaultWriteParam() {
+        ImageWriteParam param = imageMagickImageWriter.getDefaultWriteParam();
+        assertTrue(param.canWriteCompressed());
+        assertTrue(param.canWriteProgressive());
+        assertFalse(param.canWriteTiles());
+        assertTrue(Arrays.asList(param.getCompressionTypes()).containsAll(List.of("Zip", "LZW", "JPEG", "None")));
+        for (String compressionType : param.getCompressionTypes()) {
+            assertEquals(compressionType, CompressionType.forName(compressionType).getName());
+        }
+    }
+
+    @Test
+    public void getDefaultWriteParamWithFormats() {
+        ImageWriteParam tiffParam = new ImageMagickImageWriteParam(Locale.ROOT, "TIFF");
+        assertFalse(tiffParam.canWriteProgressive());
+        assertTrue(tiffParam.canWriteTiles());
+
+        ImageWriteParam rgbParam = new ImageMagickImageWriteParam(Locale.ROOT, "RGB");
+        assertFalse(rgbParam.canWriteProgressive());
+        assertFalse(rgbParam.canWriteTiles());
+    }
+
+    @Test
+    public void writeWithTiles() throws IOException {
+        BufferedImage source = TestImage.readWithJDK(TestImage.ImageReference.PNG_RGB_8);
+        imageMagickImageWriter.dispose();
+        imageMagickImageWriter = new ImageMagickImageWriter(
+                new AbstractImageMagickImageWriterSpi("TIFF", "tif", "image/tiff"));
+        ImageWriteParam param = imageMagickImageWriter.getDefaultWriteParam();
+        param.setTilingMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setTiling(64, 32, 0, 0);
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = new MemoryCacheImageOutputStream(byteArrayOutputStream)) {
+            imageMagickImageWriter.setOutput(imageOutputStream);
+            imageMagickImageWriter.write(null, new IIOImage(source, null, null), param);
+        }
+
+        // the TIFF reader of the JDK reports the tiles of the file
+        ImageReader reader = StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                        ImageIO.getImageReadersByFormatName("tiff"), 0), false)
+                .filter(imageReader -> !(imageReader instanceof ImageMagickImageReader))
+                .findFirst()
+                .orElseThrow();
+        try {
+            reader.setInput(ImageIO.createImageInputStream(
+                    new ByteArrayInputStream(byteArrayOutputStream.toByteArray())));
+            assertTrue(reader.isImageTiled(0));
+            assertEquals(64, reader.getTileWidth(0));
+            assertEquals(32, reader.getTileHeight(0));
+            ImageAsserts.compareBufferedImages(source, reader.read(0), 1);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    @Test
+    public void writeWithCompressionQuality() throws IOException {
+        BufferedImage source = TestImage.readWithJDK(TestImage.ImageReference.PNG_RGB_8);
+
+        byte[] fastest = writeWithParam(source, 1f);
+        byte[] strongest = writeWithParam(source, 0f);
+
+        assertTrue(fastest.length > strongest.length);
+        ImageAsserts.compareBufferedImages(source, TestImage.readWithJDK(fastest, 0), 1);
+        ImageAsserts.compareBufferedImages(source, TestImage.readWithJDK(strongest, 0), 1);
+    }
+
+    private byte[] writeWithParam(BufferedImage image, float compressionQuality) throws IOException {
+        ImageWriteParam param = imageMagickImageWriter.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionType("Zip");
+        param.setCompressionQuality(compressionQuality);
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = new MemoryCacheImageOutputStream(byteArrayOutputStream)) {
+            imageMagickImageWriter.setOutput(imageOutputStream);
+            imageMagickImageWriter.write(null, new IIOImage(image, null, null), param);
+        }
+        return byteArrayOutputStream.toByteArray();
+    }
+
+    @Test
+    public void canWriteSequence() {
+        assertFalse(imageMagickImageWriter.canWriteSequence());
+        ImageMagickImageWriter tiffWriter = new ImageMagickImageWriter(
+                new AbstractImageMagickImageWriterSpi("TIFF", "tif", "image/tiff"));
+        try {
+            assertTrue(tiffWriter.canWriteSequence());
+        } finally {
+            tiffWriter.dispose();
+        }
+    }
+
+    @Test
+    public void writeSequence() throws IOException {
+        BufferedImage source = TestImage.readWithJDK(TestImage.ImageReference.PNG_RGB_8);
+        imageMagickImageWriter.dispose();
+        imageMagickImageWriter = new ImageMagickImageWriter(
+                new AbstractImageMagickImageWriterSpi("TIFF", "tif", "image/tiff"));
+
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = new MemoryCacheImageOutputStream(byteArrayOutputStream)) {
+            imageMagickImageWriter.setOutput(imageOutputStream);
+            assertThrows(IllegalStateException.class, () -> imageMagickImageWriter.writeToSequence(new IIOImage(source, null, null), null));
+            imageMagickImageWriter.prepareWriteSequence(null);
+            for (int i = 0; i < 3; i++) {
+                imageMagickImageWriter.writeToSequence(new IIOImage(source, null, null), null);
+            }
+            imageMagickImageWriter.endWriteSequence();
+        }
+
+        ImageMagickImageReader reader = new ImageMagickImageReader(new ImageMagickImageReaderSpi());
+        try {
+            reader.setInput(ImageIO.createImageInputStream(
+                    new ByteArrayInputStream(byteArrayOutputStream.toByteArray())));
+            assertEquals(3, reader.getNumImages(true));
+            ImageAsserts.compareBufferedImages(source, reader.read(2), 1);
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /** Writes a float image as portable float map and reads it back as floats. */
+    @Test
+    public void writeAndReadWithFloats() throws IOException {
+        int width = 16;
+        int height = 8;
+        ComponentColorModel colorModel = new ComponentColorModel(
+                ColorSpace.getInstance(ColorSpace.CS_sRGB), false, false,
+                Transparency.OPAQUE, DataBuffer.TYPE_FLOAT);
+        BufferedImage expectedImage = new BufferedImage(colorModel,
+                colorModel.createCompatibleWritableRaster(width, height), false, null);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                expectedImage.getRaster().setPixel(x, y, new float[] {x / (float) width, y / (float) height, 0.5f});
+            }
+        }
+
+        imageMagickImageWriter.dispose();
+        imageMagickImageWriter = new ImageMagickImageWriter(
+                new AbstractImageMagickImageWriterSpi("PFM", "pfm", "image/x-portable-floatmap"));
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = new MemoryCacheImageOutputStream(byteArrayOutputStream)) {
+            imageMagickImageWriter.setOutput(imageOutputStream);
+            imageMagickImageWriter.write(expectedImage);
+        }
+
+        ImageMagickImageReader reader = new ImageMagickImageReader(new ImageMagickImageReaderSpi());
+        try {
+            reader.setInput(ImageIO.createImageInputStream(
+                    new ByteArrayInputStream(byteArrayOutputStream.toByteArray())));
+            BufferedImage actualImage = reader.read(0);
+            assertEquals(DataBuffer.TYPE_FLOAT, actualImage.getRaster().getDataBuffer().getDataType());
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    assertArrayEquals(
+                            expectedImage.getRaster().getPixel(x, y, (float[]) null),
+                            actualImage.getRaster().getPixel(x, y, (float[]) null),
+                            0.001f);
+                }
+            }
+        } finally {
+            reader.dispose();
+        }
+    }
+
+    /** Writes a float image with values above 1 as TIFF, the depth decides the sample format there. */
+    @Test
+    public void writeAndReadWithFloatTiff() throws IOException {
+        int width = 16;
+        int height = 8;
+        ComponentColorModel colorModel = new ComponentColorModel(
+                ColorSpace.getInstance(ColorSpace.CS_sRGB), false, false,
+                Transparency.OPAQUE, DataBuffer.TYPE_FLOAT);
+        BufferedImage expectedImage = new BufferedImage(colorModel,
+                colorModel.createCompatibleWritableRaster(width, height), false, null);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                expectedImage.getRaster().setPixel(x, y, new float[] {x / 4f, 1f + y / 4f, 0.5f});
+            }
+        }
+
+        imageMagickImageWriter.dispose();
+        imageMagickImageWriter = new ImageMagickImageWriter(
+                new AbstractImageMagickImageWriterSpi("TIFF", "tif", "image/tiff"));
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = new MemoryCacheImageOutputStream(byteArrayOutputStream)) {
+            imageMagickImageWriter.setOutput(imageOutputStream);
+            imageMagickImageWriter.write(expectedImage);
+        }
+
+        // values above 1 are kept by HDRI builds of ImageMagick only
+        ImageMagickImageReader reader = new ImageMagickImageReader(new ImageMagickImageReaderSpi());
+        try {
+            reader.setInput(ImageIO.createImageInputStream(
+                    new ByteArrayInputStream(byteArrayOutputStream.toByteArray())));
+            BufferedImage actualImage = reader.read(0);
+            assertEquals(DataBuffer.TYPE_FLOAT, actualImage.getRaster().getDataBuffer().getDataType());
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    assertArrayEquals(
+                            expectedImage.getRaster().getPixel(x, y, (float[]) null),
+                            actualImage.getRaster().getPixel(x, y, (float[]) null),
+                            0.001f,
+                            "pixel " + x + "/" + y);
+                }
+            }
+        } finally {
+            reader.dispose();
+        }
+    }
+
     private void writeWithRenderedImage(TestImage.ImageReference source) throws IOException {
         File tmpFile = File.createTempFile("img", "tmp");
         RandomAccessFile randomAccessFile = new RandomAccessFile(tmpFile, "rw");
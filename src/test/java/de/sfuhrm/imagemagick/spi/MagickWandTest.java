@@ -4,8 +4,18 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -39,6 +49,48 @@ public class MagickWandTest {
         wand.readBlob(imageBytes);
     }
 
+    @Test
+    public void closeReturnsClearedWand() throws MagickException {
+        wand.readBlob(imageBytes);
+        wand.close();
+        wand.close();
+
+        wand = NativeMagick.instance().new MagickWand();
+        assertEquals(0, wand.getNumberImages());
+    }
+
+    @Test
+    public void readBlobWithNativeJpeg() throws IOException, MagickException {
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment blob = arena.allocateFrom(ValueLayout.JAVA_BYTE, imageBytes);
+            wand.readBlob(blob);
+        }
+        assertEquals(1, wand.getNumberImages());
+    }
+
+    @Test
+    public void readStreamWithJpeg() throws IOException, MagickException {
+        ImageInputStream imageInputStream = ImageIO.createImageInputStream(
+                new ByteArrayInputStream(imageBytes));
+        wand.readStream(imageInputStream);
+        assertEquals(1, wand.getNumberImages());
+        assertEquals(imageReference.width(), wand.getImageWidth());
+        assertEquals(imageReference.height(), wand.getImageHeight());
+    }
+
+    @Test
+    public void frameHeaderWithJpeg() throws MagickException {
+        wand.readBlob(imageBytes);
+        FrameHeader header = FrameHeader.of(wand);
+        assertEquals(imageReference.width(), header.width());
+        assertEquals(imageReference.height(), header.height());
+        assertEquals(8, header.depth());
+        assertFalse(header.hasAlpha());
+        assertFalse(header.isGray());
+        assertNotNull(header.units());
+        assertNotNull(header.orientation());
+    }
+
     @Test
     public void getNumberImages() throws IOException, MagickException {
         long numImages = wand.getNumberImages();
@@ -57,10 +109,40 @@ public class MagickWandTest {
         assertEquals(1, wand.getNumberImages());
     }
 
+    @Test
+    public void writeImageBlob() throws IOException, MagickException {
+        wand.readBlob(imageBytes);
+        wand.setImageFormat("PNG");
+        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(byteArrayOutputStream)) {
+            wand.writeImageBlob(output);
+        }
+        byte[] written = byteArrayOutputStream.toByteArray();
+        assertTrue(written.length > 8);
+        assertArrayEquals(new byte[] {(byte) 0x89, 'P', 'N', 'G'}, Arrays.copyOf(written, 4));
+    }
+
     @Test
     public void exportImagePixelsAsRGBBytes() throws IOException, MagickException {
         wand.readBlob(imageBytes);
-        byte[] pixels = wand.exportImagePixelsAsRGBBytes();
+        byte[] pixels = wand.exportImagePixelsAsRGBBytes(0, 0, imageReference.width(), imageReference.height());
         assertEquals(3 * imageReference.width() * imageReference.height(), pixels.length);
     }
+
+    @Test
+    public void exportImagePixelsIntoArray() throws IOException, MagickException {
+        wand.readBlob(imageBytes);
+        byte[] expected = wand.exportImagePixelsAsRGBBytes(10, 20, 30, 40);
+        byte[] pixels = new byte[3 * 30 * 40];
+        wand.exportImagePixels(10, 20, 30, 40, "RGB", StorageType.CharPixel, MemorySegment.ofArray(pixels));
+        assertArrayEquals(expected, pixels);
+    }
+
+    @Test
+    public void exportImagePixelsIntoTooSmallArray() throws IOException, MagickException {
+        wand.readBlob(imageBytes);
+        byte[] pixels = new byte[3 * 30 * 40 - 1];
+        assertThrows(IllegalArgumentException.class, () ->
+            wand.exportImagePixels(10, 20, 30, 40, "RGB", StorageType.CharPixel, MemorySegment.ofArray(pixels)));
+    }
 }
@@ -0,0 +1,135 @@
+package de.sfuhrm.imagemagick.spi;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead of the {@link NativeMagick.MagickWand} calls
+ * against plain FFM downcalls of the same functions.
+ * Not run by the tests; start {@link #main(String[])} with the test classpath.
+ * The GC profiler reports the allocation per call in {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NativeMagickBenchmark {
+
+    private static final int SIZE = 16;
+
+    private NativeMagick.MagickWand wand;
+
+    private MemorySegment rawWand;
+    private MethodHandle rawGetImageWidth;
+    private MethodHandle rawDestroyWand;
+    private MemorySegment rawPixelWand;
+    private MethodHandle rawDestroyPixelWand;
+
+    @Setup(Level.Trial)
+    public void setup() throws MagickException {
+        wand = NativeMagick.instance().new MagickWand();
+        wand.newImage(SIZE, SIZE);
+
+        Linker linker = Linker.nativeLinker();
+        SymbolLookup lookup = libraryLookup();
+        MethodHandle newWand = linker.downcallHandle(lookup.find("NewMagickWand").orElseThrow(),
+                FunctionDescriptor.of(ValueLayout.ADDRESS));
+        MethodHandle newPixelWand = linker.downcallHandle(lookup.find("NewPixelWand").orElseThrow(),
+                FunctionDescriptor.of(ValueLayout.ADDRESS));
+        MethodHandle newImage = linker.downcallHandle(lookup.find("MagickNewImage").orElseThrow(),
+                FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS,
+                        ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG, ValueLayout.ADDRESS));
+        rawGetImageWidth = linker.downcallHandle(lookup.find("MagickGetImageWidth").orElseThrow(),
+                FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.ADDRESS));
+        rawDestroyWand = linker.downcallHandle(lookup.find("DestroyMagickWand").orElseThrow(),
+                FunctionDescriptor.ofVoid(ValueLayout.ADDRESS));
+        rawDestroyPixelWand = linker.downcallHandle(lookup.find("DestroyPixelWand").orElseThrow(),
+                FunctionDescriptor.ofVoid(ValueLayout.ADDRESS));
+        try {
+            rawWand = (MemorySegment) newWand.invokeExact();
+            rawPixelWand = (MemorySegment) newPixelWand.invokeExact();
+            int ok = (int) newImage.invokeExact(rawWand, (long) SIZE, (long) SIZE, rawPixelWand);
+            if (ok == 0) {
+                throw new MagickException("MagickNewImage failed");
+            }
+        } catch (Throwable e) {
+            throw new MagickException(e);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Throwable {
+        wand.close();
+        rawDestroyWand.invokeExact(rawWand);
+        rawDestroyPixelWand.invokeExact(rawPixelWand);
+    }
+
+    private static SymbolLookup libraryLookup() {
+        for (String lib : NativeMagick.LIB_NAMES) {
+            try {
+                return SymbolLookup.libraryLookup(lib, Arena.global());
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+        throw new IllegalStateException("ImageMagick library not found");
+    }
+
+    /** The FFM baseline for a single getter. */
+    @Benchmark
+    public long baselineGetImageWidth() throws Throwable {
+        return (long) rawGetImageWidth.invokeExact(rawWand);
+    }
+
+    @Benchmark
+    public long getImageWidth() throws MagickException {
+        return wand.getImageWidth();
+    }
+
+    /** The header getters the reader calls per frame. */
+    @Benchmark
+    public void getImageHeader(Blackhole blackhole) throws MagickException {
+        blackhole.consume(wand.getImageWidth());
+        blackhole.consume(wand.getImageHeight());
+        blackhole.consume(wand.getImageDepth());
+        blackhole.consume(wand.getImageColorspace());
+        blackhole.consume(wand.getImageAlphaChannel());
+    }
+
+    @Benchmark
+    public int[] exportImagePixelsAsARGBInts() throws MagickException {
+        return wand.exportImagePixelsAsARGBInts(0, 0, SIZE, SIZE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(NativeMagickBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -9,6 +9,7 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -38,6 +39,19 @@ public class NativeMagickTest {
         instance.close();
     }
 
+    @Test
+    public void instanceIsShared() {
+        assertSame(NativeMagick.instance(), NativeMagick.instance());
+    }
+
+    @Test
+    public void useAfterClose() throws Throwable {
+        NativeMagick first = new NativeMagick();
+        first.close();
+        NativeMagick second = new NativeMagick();
+        assertTrue(second.canRead(imageBytes));
+    }
+
     @Test
     public void canReadWithJpeg() throws Throwable {
         NativeMagick instance = new NativeMagick();
@@ -50,6 +64,24 @@ public class NativeMagickTest {
         assertFalse(instance.canRead("you can not read garbage".getBytes(StandardCharsets.UTF_8)));
     }
 
+    @Test
+    public void detectFormatWithJpeg() {
+        NativeMagick instance = new NativeMagick();
+        assertEquals("JPEG", instance.detectFormat(Arrays.copyOf(imageBytes, 64)).orElse(null));
+    }
+
+    @Test
+    public void detectFormatWithGarbage() {
+        NativeMagick instance = new NativeMagick();
+        assertFalse(instance.detectFormat("you can not read garbage".getBytes(StandardCharsets.UTF_8)).isPresent());
+    }
+
+    @Test
+    public void detectFormatWithEmpty() {
+        NativeMagick instance = new NativeMagick();
+        assertFalse(instance.detectFormat(new byte[0]).isPresent());
+    }
+
     @Test
     public void convertBlobWithNullInputBlob() throws Throwable {
         NativeMagick instance = new NativeMagick();